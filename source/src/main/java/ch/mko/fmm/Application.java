@@ -17,6 +17,13 @@ public class Application {
 		return new Boolean(messages.getString("debug"));
 	}
 	
+	/**
+	 * @return the time in milliseconds a watched game file must be unchanged until it is read
+	 */
+	public static long getWatchQuietPeriodMillis() {
+		return Long.parseLong(messages.getString("watch_quiet_period_millis").trim());
+	}
+	
 	public static String getName() {
 		return messages.getString("name");
 	}
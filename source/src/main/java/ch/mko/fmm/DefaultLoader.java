@@ -16,8 +16,10 @@ import java.util.stream.Collectors;
 
 import main.java.ch.mko.fmm.model.score.Championship;
 import main.java.ch.mko.fmm.model.score.Duel;
+import main.java.ch.mko.fmm.model.score.HighscoreIndex;
 import main.java.ch.mko.fmm.model.score.Phantom;
 import main.java.ch.mko.fmm.model.score.Settings;
+import main.java.ch.mko.fmm.util.ArchiveLoader;
 
 public class DefaultLoader {
 
@@ -26,7 +28,8 @@ public class DefaultLoader {
 				Phantom.PHANTOM_DIR,
 				Phantom.CUSTOM_DIR,
 				Championship.CHAMPIONSHIP_DIR,
-				Duel.DUEL_DIR
+				Duel.DUEL_DIR,
+				HighscoreIndex.INDEX_DIR
 		};
 		for (String dir : dirs) {
 			if (!new File(dir).isDirectory()) {
@@ -105,17 +108,11 @@ public class DefaultLoader {
 				return name.startsWith("phantom-");
 			}
 		});
-		for (File subItem : subItemsP) {
-			if (subItem.isDirectory()) {
-				for (File item : subItem.listFiles()) {
-					Phantom phantom = new Phantom(item.getAbsolutePath());
-					phantom.savePhantom(item.getAbsolutePath());
-				}
-			} else if (subItem.isFile()) {
-				Phantom phantom = new Phantom(subItem.getAbsolutePath());
-				phantom.savePhantom(subItem.getAbsolutePath());
-			}
-		}
+		ArchiveLoader.loadAll(ArchiveLoader.listFiles(subItemsP), item -> {
+			Phantom phantom = new Phantom(item.getAbsolutePath());
+			phantom.savePhantom(item.getAbsolutePath());
+			return phantom;
+		});
 	}
 	
 	static void updateLocalPhantoms() throws IOException {
@@ -127,17 +124,11 @@ public class DefaultLoader {
 				return name.startsWith("phantom-");
 			}
 		});
-		for (File subItem : subItemsP) {
-			if (subItem.isDirectory()) {
-				for (File item : subItem.listFiles()) {
-					Phantom phantom = new Phantom(item.getAbsolutePath());
-					phantom.savePhantom(item.getAbsolutePath());
-				}
-			} else if (subItem.isFile()) {
-				Phantom phantom = new Phantom(subItem.getAbsolutePath());
-				phantom.savePhantom(subItem.getAbsolutePath());
-			}
-		}
+		ArchiveLoader.loadAll(ArchiveLoader.listFiles(subItemsP), item -> {
+			Phantom phantom = new Phantom(item.getAbsolutePath());
+			phantom.savePhantom(item.getAbsolutePath());
+			return phantom;
+		});
 	}
 	
 	static void updateAllChampionships() throws IOException {
@@ -149,19 +140,12 @@ public class DefaultLoader {
 				return name.startsWith("championship-");
 			}
 		});
-		for (File subItem : subItems) {
-			if (subItem.isDirectory()) {
-				for (File item : subItem.listFiles()) {
-					Championship championship = new Championship(new Settings(item.getAbsolutePath(), true));
-					championship.updateChampionshipInfos(true);
-					championship.saveChampionship(item.getAbsolutePath());
-				}
-			} else if (subItem.isFile()) {
-				Championship championship = new Championship(new Settings(subItem.getAbsolutePath(), true));
-				championship.updateChampionshipInfos(true);
-				championship.saveChampionship(subItem.getAbsolutePath());
-			}
-		}
+		ArchiveLoader.loadAll(ArchiveLoader.listFiles(subItems), item -> {
+			Championship championship = new Championship(new Settings(item.getAbsolutePath(), true));
+			championship.updateChampionshipInfos(true);
+			championship.saveChampionship(item.getAbsolutePath());
+			return championship;
+		});
 	}
 	
 	static void updateAllDuels() throws IOException {
@@ -173,18 +157,11 @@ public class DefaultLoader {
 				return name.startsWith("duel-");
 			}
 		});
-		for (File subItem : subItemsD) {
-			if (subItem.isDirectory()) {
-				for (File item : subItem.listFiles()) {
-					Duel duel = new Duel(new Settings(item.getAbsolutePath(), true));
-					duel.updateDuelInfos();
-					duel.saveDuel(item.getAbsolutePath());
-				}
-			} else if (subItem.isFile()) {
-				Duel duel = new Duel(new Settings(subItem.getAbsolutePath(), true));
-				duel.updateDuelInfos();
-				duel.saveDuel(subItem.getAbsolutePath());
-			}
-		}
+		ArchiveLoader.loadAll(ArchiveLoader.listFiles(subItemsD), item -> {
+			Duel duel = new Duel(new Settings(item.getAbsolutePath(), true));
+			duel.updateDuelInfos();
+			duel.saveDuel(item.getAbsolutePath());
+			return duel;
+		});
 	}
 }
@@ -2,32 +2,39 @@ package main.java.ch.mko.fmm;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import main.java.ch.mko.fmm.i18n.I18N;
 import main.java.ch.mko.fmm.i18n.I18NLocale;
 import main.java.ch.mko.fmm.model.enums.Version;
 import main.java.ch.mko.fmm.model.score.Championship;
+import main.java.ch.mko.fmm.model.score.ChampionshipLevelIndex;
 import main.java.ch.mko.fmm.model.score.Duel;
+import main.java.ch.mko.fmm.model.score.HighscoreIndex;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings;
+import main.java.ch.mko.fmm.model.score.LiveSettings;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings.PhantomMode;
 import main.java.ch.mko.fmm.model.score.Phantom;
 import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
 import main.java.ch.mko.fmm.model.score.Settings;
+import main.java.ch.mko.fmm.model.score.SettingsItem;
+import main.java.ch.mko.fmm.model.score.TrackTimeStore;
+import main.java.ch.mko.fmm.util.FileChangeCoalescer;
+import main.java.ch.mko.fmm.util.FileChangeDispatcher;
+import main.java.ch.mko.fmm.util.FileChangeDispatcher.FileChangeHandler;
+import main.java.ch.mko.fmm.util.FileChangeDispatcher.Registration;
 import main.java.ch.mko.fmm.views.CustomPhantom;
 import main.java.ch.mko.fmm.views.HighscorePanel;
 
 public class SettingsUpdateChecker {
 	
-	private ExecutorService m_updateService;
+	private static final Path SETTINGS_FILE = Paths.get(Settings.SETTINGS_PATH);
+	
+	private static final Path PHANTOM_FILE = Paths.get(Phantom.DEFAULT_INPUT_PATH);
+	
+	private Registration[] m_registrations;
 	
 	private final Settings m_settings;
 	
@@ -38,197 +45,165 @@ public class SettingsUpdateChecker {
 	private final Duel m_duel;
 	
 	private final HighscorePanel m_highscorePanel;
+	
+	private final FileChangeCoalescer m_settingsCoalescer;
+	
+	private final FileChangeCoalescer m_phantomCoalescer;
 
 	public SettingsUpdateChecker(HighscorePanel highscorePanel) throws IOException {
 		m_settings = new Settings(Settings.SETTINGS_PATH, true);
 		m_championship = new Championship(m_settings);
 		m_duel = new Duel(m_settings);
 		m_highscorePanel = highscorePanel;
+		long quietPeriodMillis = Application.getWatchQuietPeriodMillis();
+		m_settingsCoalescer = new FileChangeCoalescer(new File(Settings.SETTINGS_PATH), quietPeriodMillis, this::updateSettings);
+		m_phantomCoalescer = new FileChangeCoalescer(new File(Phantom.DEFAULT_INPUT_PATH), quietPeriodMillis, this::updatePhantom);
 	}
 	
-	@SuppressWarnings("unchecked")
-	void updateSettingsUpdateCheck() {
-		if (m_updateService != null) {
-			m_updateService.shutdownNow();
+	synchronized void updateSettingsUpdateCheck() {
+		if (m_registrations != null) {
+			for (Registration registration : m_registrations) {
+				registration.cancel();
+			}
+			m_registrations = null;
+			m_settingsCoalescer.cancel();
+			m_phantomCoalescer.cancel();
+			LiveSettings.setWatched(false);
+			MainFrame.LOG_PANEL.log("Stopped checking for updates in settings and phantoms.");
 		}
 		
 		if (HighscoreSettings.loadSettings().isAutoAddHighscores()) {
-			m_updateService = Executors.newFixedThreadPool(2);
-			m_updateService.execute(() -> {
-				MainFrame.LOG_PANEL.log("Started checking for updates in settings.");
-				WatchService watcherSettings = null;
-				try {
-					watcherSettings = FileSystems.getDefault().newWatchService();
-				    new File(Settings.SETTINGS_PATH).getAbsoluteFile().getParentFile().toPath().register(watcherSettings,
-	                           StandardWatchEventKinds.ENTRY_CREATE,
-	                           StandardWatchEventKinds.ENTRY_MODIFY);
-				} catch (IOException e) {
-				    e.printStackTrace();
-				    MainFrame.LOG_PANEL.error("Could not initialize update check for settings: " + e.getMessage(), e);
+			try {
+				FileChangeDispatcher dispatcher = FileChangeDispatcher.getDispatcher();
+				m_registrations = new Registration[] {
+						dispatcher.watchFile(SETTINGS_FILE, new UpdateHandler(m_settingsCoalescer)),
+						dispatcher.watchFile(PHANTOM_FILE, new UpdateHandler(m_phantomCoalescer))
+				};
+				LiveSettings.setWatched(true);
+				MainFrame.LOG_PANEL.log("Started checking for updates in settings and phantoms.");
+			} catch (IOException e) {
+				e.printStackTrace();
+				MainFrame.LOG_PANEL.error("Could not initialize update check for settings and phantoms: " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Passes the changes of a game file to its coalescer and stops the automatic
+	 * adding of highscores if the file cannot be watched anymore.
+	 */
+	private class UpdateHandler implements FileChangeHandler {
+		
+		private final FileChangeCoalescer m_coalescer;
+		
+		private UpdateHandler(FileChangeCoalescer coalescer) {
+			m_coalescer = coalescer;
+		}
+		
+		@Override
+		public void fileChanged(Path file, WatchEvent.Kind<?> kind) {
+			if (file.toFile().isFile()) {
+				m_coalescer.fileChanged();
+			}
+		}
+		
+		@Override
+		public void watchStopped(Path dir) {
+			MainFrame.LOG_PANEL.warn("Directory " + dir + " cannot be watched anymore!");
+			HighscoreSettings settings = HighscoreSettings.loadSettings();
+			if (settings.isAutoAddHighscores()) {
+				settings.setAutoAddHighscores(false);
+				updateSettingsUpdateCheck();
+			}
+		}
+	}
+	
+	private void updateSettings() {
+		try {
+			int currentCharacter = m_settings.getCurrentCharacter();
+			if (m_settings.update()) {
+				MainFrame.LOG_PANEL.log("Update in settings found.");
+				
+				if (Version.getGameVersion() == null) {
+					MainFrame.LOG_PANEL.warn("The game wasn't opened by the \""
+							+ I18NLocale.getString(I18N.OPEN_GAME) + "\" button! "
+							+ "So if you make new highscores, they cannot be saved!");
 				}
-				try {
-					while (true) {
-						WatchKey key = watcherSettings.take();
-					    for (WatchEvent<?> event : key.pollEvents()) {
-					        WatchEvent.Kind<?> kind = event.kind();
-					        // Discard overflow events.
-					        if (kind == StandardWatchEventKinds.OVERFLOW) {
-					            continue;
-					        }
-
-					        // The file path is the context of the event.
-					        String fileName = ((WatchEvent<Path>) event).context().toFile().getName();
-					        boolean isSettingsFile = fileName.equals(new File(Settings.SETTINGS_PATH).getName());
-					        if (isSettingsFile) {
-						        Path filePath = Paths.get(new File(Settings.SETTINGS_PATH)
-						        		.getAbsoluteFile().getParentFile().toPath().toString(), fileName);
-					        	if (filePath.toFile().isFile()) {
-					        		try {
-					        			int currentCharacter = m_settings.getCurrentCharacter();
-						        		if (m_settings.update()) {
-							        		MainFrame.LOG_PANEL.log("Update in settings found.");
-							        		
-							        		if (Version.getGameVersion() == null) {
-							        			MainFrame.LOG_PANEL.warn("The game wasn't opened by the \""
-							        					+ I18NLocale.getString(I18N.OPEN_GAME) + "\" button! "
-							        					+ "So if you make new highscores, they cannot be saved!");
-							        		}
-							        		
-						        			switch (m_settings.getType()) {
-
-											case CHAMPIONSHIP:
-											case CHAMPIONSHIP_2_PLAYER:
-												if (m_championship.updateChampionshipInfos(false)) {
-													trySaveChampionship();
-												} else {
-													MainFrame.LOG_PANEL.log("No new information was found in settings.");
-												}
-												break;
-											
-											case DUEL_2_PLAYER:
-												if (m_duel.updateDuelInfos()) {
-													saveDuel();
-												} else {
-													MainFrame.LOG_PANEL.log("No new information was found in settings.");
-												}
-												break;
-											
-											case EMTPY:
-												MainFrame.LOG_PANEL.log("Settings file was reset.");
-												break;
-												
-											case TIME_TRIAL:
-												// handled when phantom file changes
-												break;
-												
-											default:
-												MainFrame.LOG_PANEL.warn("Settings file has an unknown format!");
-												break;
-											}
-						        		}
-						        		
-						        		if (currentCharacter != m_settings.getCurrentCharacter()) {
-						        			CustomPhantom.updateShownPhantoms();
-						        		}
-						        		
-									} catch (Exception e) {
-										e.printStackTrace();
-										MainFrame.LOG_PANEL.error("Exception occurred while checking for updates for settings: " + e.getMessage(), e);
-									}
-					        	}
-					        }
-					    }
+				
+				switch (m_settings.getType()) {
 
-					    // Reset the key -- this step is critical if you want to
-					    // receive further watch events.  If the key is no longer valid,
-					    // the directory is inaccessible so exit the loop.
-					    boolean valid = key.reset();
-					    if (!valid) {
-					        throw new InterruptedException("Interrupted by invalid watch key for settings file!");
-					    }
-					}	
-				} catch (InterruptedException e) {
-					HighscoreSettings settings = HighscoreSettings.loadSettings();
-					if (settings.isAutoAddHighscores()) {
-						settings.setAutoAddHighscores(false);
-						updateSettingsUpdateCheck();
+				case CHAMPIONSHIP:
+				case CHAMPIONSHIP_2_PLAYER:
+					if (m_championship.updateChampionshipInfos(false)) {
+						trySaveChampionship();
+					} else {
+						MainFrame.LOG_PANEL.log("No new information was found in settings.");
 					}
-					MainFrame.LOG_PANEL.log("Stopped checking for updates in settings.");
-				}
-			});
-			m_updateService.execute(() -> {
-				MainFrame.LOG_PANEL.log("Started checking for updates in phantoms.");
-				WatchService watcherPhantom = null;
-				try {
-					watcherPhantom = FileSystems.getDefault().newWatchService();
-				    new File(Phantom.DEFAULT_INPUT_PATH).getAbsoluteFile().getParentFile().toPath().register(watcherPhantom,
-	                           StandardWatchEventKinds.ENTRY_CREATE,
-	                           StandardWatchEventKinds.ENTRY_MODIFY);
-				} catch (IOException e) {
-				    e.printStackTrace();
-				    MainFrame.LOG_PANEL.error("Could not initialize update check for phantoms: " + e.getMessage(), e);
+					break;
+				
+				case DUEL_2_PLAYER:
+					if (m_duel.updateDuelInfos()) {
+						saveDuel();
+					} else {
+						MainFrame.LOG_PANEL.log("No new information was found in settings.");
+					}
+					break;
+				
+				case EMTPY:
+					MainFrame.LOG_PANEL.log("Settings file was reset.");
+					break;
+					
+				case TIME_TRIAL:
+					// handled when phantom file changes
+					break;
+					
+				default:
+					MainFrame.LOG_PANEL.warn("Settings file has an unknown format!");
+					break;
 				}
+			}
+			
+			if (currentCharacter != m_settings.getCurrentCharacter()) {
+				CustomPhantom.updateShownPhantoms();
+			}
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+			MainFrame.LOG_PANEL.error("Exception occurred while checking for updates for settings: " + e.getMessage(), e);
+		}
+	}
+	
+	private void updatePhantom() {
+		try {
+			MainFrame.LOG_PANEL.log("Update in phantoms found.");
+			
+			boolean changed = false;
+			if (m_phantom != null) {
+				changed = m_phantom.updatePhantomInfos();
+			} else {
+				m_phantom = new Phantom(Phantom.DEFAULT_INPUT_PATH);
+				changed = m_phantom.isInitialized();
+			}
+			if (changed) {
 				try {
-					while (true) {
-						WatchKey key = watcherPhantom.take();
-					    for (WatchEvent<?> event : key.pollEvents()) {
-					        WatchEvent.Kind<?> kind = event.kind();
-					        // Discard overflow events.
-					        if (kind == StandardWatchEventKinds.OVERFLOW) {
-					            continue;
-					        }
-
-					        // The file path is the context of the event.
-					        String fileName = ((WatchEvent<Path>) event).context().toFile().getName();
-					        boolean isPhantomFile = fileName.equals(new File(Phantom.DEFAULT_INPUT_PATH).getName());
-					        if (isPhantomFile) {
-						        Path filePath = Paths.get(new File(Phantom.DEFAULT_INPUT_PATH)
-						        		.getAbsoluteFile().getParentFile().toPath().toString(), fileName);
-					        	if (filePath.toFile().isFile()) {
-					        		try {
-						        		MainFrame.LOG_PANEL.log("Update in phantoms found.");
-						        		
-					        			boolean changed = false;
-										if (m_phantom != null) {
-											changed = m_phantom.updatePhantomInfos();
-										} else {
-											m_phantom = new Phantom(Phantom.DEFAULT_INPUT_PATH);
-											changed = m_phantom.isInitialized();
-										}
-										if (changed) {
-											try {
-												savePhantom();
-											} catch (IllegalStateException e) {
-												MainFrame.LOG_PANEL.error("Exception when saving phantom: " + e.getMessage());
-											}
-										} else {
-											MainFrame.LOG_PANEL.log("No new information was found in phantoms.");
-										}
-									} catch (Exception e) {
-										e.printStackTrace();
-										MainFrame.LOG_PANEL.error("Exception occurred while checking for updates for phantoms: " + e.getMessage(), e);
-									}
-					        	}
-					        }
-					    }
-
-					    // Reset the key -- this step is critical if you want to
-					    // receive further watch events.  If the key is no longer valid,
-					    // the directory is inaccessible so exit the loop.
-					    boolean valid = key.reset();
-					    if (!valid) {
-					        throw new InterruptedException("Interrupted by invalid watch key for phantoms file!");
-					    }
-					}	
-				} catch (InterruptedException e) {
-					HighscoreSettings settings = HighscoreSettings.loadSettings();
-					if (settings.isAutoAddHighscores()) {
-						settings.setAutoAddHighscores(false);
-						updateSettingsUpdateCheck();
-					}
-					MainFrame.LOG_PANEL.log("Stopped checking for updates in phantoms.");
+					savePhantom();
+				} catch (IllegalStateException e) {
+					MainFrame.LOG_PANEL.error("Exception when saving phantom: " + e.getMessage());
 				}
-			});
+			} else {
+				MainFrame.LOG_PANEL.log("No new information was found in phantoms.");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			MainFrame.LOG_PANEL.error("Exception occurred while checking for updates for phantoms: " + e.getMessage(), e);
+		}
+	}
+	
+	private void publishSavedItem(SettingsItem savedItem) {
+		if (savedItem != null) {
+			m_highscorePanel.addSavedItem(savedItem);
+		} else {
+			MainFrame.LOG_PANEL.warn("Saved file is not valid, so it is not shown in the highscores!");
 		}
 	}
 	
@@ -256,7 +231,11 @@ public class SettingsUpdateChecker {
 			
 			String backupPath = m_phantom.createDefaultBackupPath();
 			savePhantom(m_phantom, backupPath);
-			m_highscorePanel.updateTableData();
+			Phantom savedPhantom = HighscoreIndex.getIndex().getPhantom(new File(backupPath));
+			if (savedPhantom != null) {
+				TrackTimeStore.add(savedPhantom);
+			}
+			publishSavedItem(savedPhantom);
 			if (phantom == null || (phantom.getTrackTime().getPlayer().getPlayerOrigin() != PlayerOrigin.CUSTOM
 					&& m_phantom.getTrackTime().getTime() < bestPhantom.getTrackTime().getTime())) {
 				PhantomMode phantomMode = HighscoreSettings.loadSettings().getPhantomMode();
@@ -275,7 +254,11 @@ public class SettingsUpdateChecker {
 		if (m_championship.isFinished()) {
 			String outputPath = m_championship.createDefaultBackupPath();
 			m_championship.saveChampionship(outputPath);
-			m_highscorePanel.updateTableData();
+			Championship savedChampionship = HighscoreIndex.getIndex().getChampionship(new File(outputPath));
+			if (savedChampionship != null) {
+				ChampionshipLevelIndex.add(savedChampionship);
+			}
+			publishSavedItem(savedChampionship);
 			MainFrame.LOG_PANEL.log("Successfully saved championship to " + outputPath + ".");
 		} else {
 			MainFrame.LOG_PANEL.log("Did not save championship so far. It isn't finished or has already been saved.");
@@ -285,7 +268,7 @@ public class SettingsUpdateChecker {
 	private void saveDuel() throws IOException {
 		String outputPath = m_duel.createDefaultBackupPath();
 		m_duel.saveDuel(outputPath);
-		m_highscorePanel.updateTableData();
+		publishSavedItem(HighscoreIndex.getIndex().getDuel(new File(outputPath)));
 		MainFrame.LOG_PANEL.log("Successfully saved duel to " + outputPath + ".");
 	}
 }
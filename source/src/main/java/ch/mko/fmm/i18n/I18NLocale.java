@@ -31,6 +31,10 @@ public enum I18NLocale {
 		return m_name;
 	}
 
+	public static I18NLocale getLocale() {
+		return I18N_LOCALE;
+	}
+
 	public static String getString(I18N i18n) {
 		return getString(I18N_LOCALE, i18n);
 	}
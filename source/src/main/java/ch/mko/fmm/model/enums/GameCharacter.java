@@ -3,7 +3,7 @@ package main.java.ch.mko.fmm.model.enums;
 import java.io.IOException;
 
 import main.java.ch.mko.fmm.i18n.I18NLocale;
-import main.java.ch.mko.fmm.model.score.Settings;
+import main.java.ch.mko.fmm.model.score.LiveSettings;
 
 public enum GameCharacter {
 	MOORHUHN,
@@ -15,7 +15,7 @@ public enum GameCharacter {
 	HANK;
 	
 	public static GameCharacter getCurrentCharacter() throws IOException {
-		return GameCharacter.values()[new Settings(Settings.SETTINGS_PATH, true).getCurrentCharacter()];
+		return GameCharacter.values()[LiveSettings.getCurrentCharacter()];
 	}
 	
 	@Override
@@ -1,15 +1,20 @@
 package main.java.ch.mko.fmm.model.enums;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import crc.CRC96;
 import main.java.ch.mko.fmm.MainFrame;
+import main.java.ch.mko.fmm.util.FileChangeDispatcher;
+import main.java.ch.mko.fmm.util.FileChangeDispatcher.FileChangeHandler;
 
 public enum Version {
 	V1_0(1, 0),
@@ -24,6 +29,24 @@ public enum Version {
 	
 	private static Version gameVersion;
 	
+	private static final String VERSION_FILES_PREFIX = "mhk2-";
+	
+	private static final Path[] VERSION_PATHS = new Path[] {
+			Paths.get("data", "mhk2-00.dat"),
+			Paths.get("data", "mhk2-01.dat"),
+			Paths.get("data", "mhk2-02.dat")
+	};
+	
+	private static Version currentVersion;
+	
+	private static long[] currentVersionKey;
+	
+	private static volatile boolean currentVersionChanged = true;
+	
+	private static volatile boolean isVersionFilesWatched = false;
+	
+	private static boolean isVersionFilesWatcherStarted = false;
+	
 	private final String m_name;
 
 	private static final int MHK2_00_V1_0_LENGTH = 144067648;
@@ -59,7 +82,73 @@ public enum Version {
 		return gameVersion != null;
 	}
 	
-	public static Version getCurrentVersion() throws IOException {
+	/**
+	 * Returns the version of the game files. The result is cached until one of
+	 * the version files is changed, so the files are only hashed again after a change.
+	 * 
+	 * @return the current version
+	 * @throws IOException if a version file cannot be read
+	 */
+	public static synchronized Version getCurrentVersion() throws IOException {
+		startVersionFilesWatcher();
+		if (currentVersion != null && !currentVersionChanged) {
+			return currentVersion;
+		}
+		
+		currentVersionChanged = !isVersionFilesWatched;
+		long[] key = getVersionFilesKey();
+		if (currentVersion == null || !Arrays.equals(key, currentVersionKey)) {
+			currentVersion = null;
+			currentVersion = readCurrentVersion();
+			currentVersionKey = key;
+		}
+		return currentVersion;
+	}
+	
+	public static void invalidateCurrentVersion() {
+		currentVersionChanged = true;
+	}
+	
+	private static long[] getVersionFilesKey() {
+		long[] key = new long[2 * VERSION_PATHS.length];
+		for (int i = 0; i < VERSION_PATHS.length; i++) {
+			File file = VERSION_PATHS[i].toFile();
+			key[2*i] = file.length();
+			key[2*i+1] = file.lastModified();
+		}
+		return key;
+	}
+	
+	private static synchronized void startVersionFilesWatcher() {
+		if (isVersionFilesWatcherStarted) {
+			return;
+		}
+		
+		isVersionFilesWatcherStarted = true;
+		try {
+			FileChangeDispatcher.getDispatcher().watchDirectory(Paths.get("data"), new FileChangeHandler() {
+				
+				@Override
+				public void fileChanged(Path file, WatchEvent.Kind<?> kind) {
+					if (kind == StandardWatchEventKinds.OVERFLOW
+							|| file.getFileName().toString().startsWith(VERSION_FILES_PREFIX)) {
+						invalidateCurrentVersion();
+					}
+				}
+				
+				@Override
+				public void watchStopped(Path dir) {
+					isVersionFilesWatched = false;
+					invalidateCurrentVersion();
+				}
+			});
+			isVersionFilesWatched = true;
+		} catch (IOException e) {
+			MainFrame.LOG_PANEL.warn("Could not watch the version files: " + e.getMessage());
+		}
+	}
+	
+	private static Version readCurrentVersion() throws IOException {
 		Path path = Paths.get("data", "mhk2-00.dat");
 		if (!path.toFile().exists()) {
 			throw new IllegalStateException("File " + path.toString() + " does not exist!"
@@ -120,6 +209,7 @@ public enum Version {
 			e.printStackTrace();
 			MainFrame.LOG_PANEL.error("Could not write version: " + e.getMessage(), e);
 		}
+		invalidateCurrentVersion();
 	}
 	
 	public String getName() {
@@ -0,0 +1,111 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.util.Arrays;
+
+import main.java.ch.mko.fmm.model.enums.Engine;
+import main.java.ch.mko.fmm.model.enums.GameCharacter;
+import main.java.ch.mko.fmm.model.enums.Level;
+import main.java.ch.mko.fmm.model.enums.Version;
+
+/**
+ * The table of the best saved phantoms per engine, level, version and character.
+ * The rows of each {@link TrackTimeStore} are only compared once, rows which
+ * were appended since the last lookup are added incrementally.
+ */
+public class BestPhantoms {
+
+	private static final int ANY = 0;
+
+	private static final int UNKNOWN_VERSION = Version.values().length + 1;
+
+	private static final int UNKNOWN_CHARACTER = GameCharacter.values().length + 1;
+
+	private static final int CHARACTER_SLOTS = GameCharacter.values().length + 2;
+
+	private static BestPhantoms bestPhantoms;
+
+	private final Bucket[] m_buckets = new Bucket[Engine.values().length * Level.values().length];
+
+	/**
+	 * The rows of the best phantoms of one store. Slot {@link #ANY} of the version
+	 * or the character contains the best phantom of all versions or characters.
+	 * Phantoms of an unknown version or character only compete in these slots and
+	 * in their own unknown slot, which is never looked up.
+	 */
+	private static class Bucket {
+
+		private TrackTimeStore m_store;
+
+		private int m_size;
+
+		private final int[] m_best = new int[(Version.values().length + 2) * CHARACTER_SLOTS];
+
+		private void update(TrackTimeStore store) {
+			if (store != m_store) {
+				m_store = store;
+				m_size = 0;
+				Arrays.fill(m_best, -1);
+			}
+			int size = store.size();
+			for (int row = m_size; row < size; row++) {
+				Version version = store.getVersion(row);
+				int characterIdx = store.getCharacterIndex(row);
+				int characterSlot = characterIdx >= 0 && characterIdx < GameCharacter.values().length ? characterIdx + 1 : UNKNOWN_CHARACTER;
+				int versionSlot = version != null ? version.ordinal() + 1 : UNKNOWN_VERSION;
+				put(ANY, ANY, row);
+				put(ANY, characterSlot, row);
+				put(versionSlot, ANY, row);
+				put(versionSlot, characterSlot, row);
+			}
+			m_size = size;
+		}
+
+		private void put(int versionSlot, int characterSlot, int row) {
+			int i = versionSlot * CHARACTER_SLOTS + characterSlot;
+			if (m_best[i] == -1 || compareRows(row, m_best[i]) < 0) {
+				m_best[i] = row;
+			}
+		}
+
+		private int compareRows(int row1, int row2) {
+			long lastModified1 = m_store.getLastModified(row1);
+			long lastModified2 = m_store.getLastModified(row2);
+			int result = Long.compare(Highscore.getSortKey(m_store.getTime(row1), lastModified1),
+					Highscore.getSortKey(m_store.getTime(row2), lastModified2));
+			return result != 0 ? result : Long.compare(lastModified1, lastModified2);
+		}
+
+		private int get(Version version, GameCharacter character) {
+			int versionSlot = version != null ? version.ordinal() + 1 : ANY;
+			int characterSlot = character != null ? character.ordinal() + 1 : ANY;
+			return m_best[versionSlot * CHARACTER_SLOTS + characterSlot];
+		}
+	}
+
+	private BestPhantoms() {
+		for (int i = 0; i < m_buckets.length; i++) {
+			m_buckets[i] = new Bucket();
+		}
+	}
+
+	public static synchronized BestPhantoms getBestPhantoms() {
+		if (bestPhantoms == null) {
+			bestPhantoms = new BestPhantoms();
+		}
+		return bestPhantoms;
+	}
+
+	/**
+	 * Returns the best saved phantom.
+	 *
+	 * @param version the version of the phantom or {@code null} for all versions
+	 * @param character the character of the phantom or {@code null} for all characters
+	 * @return the best phantom or {@code null} if no phantom was saved
+	 */
+	public synchronized Phantom getBestPhantom(Engine engine, Level level, Version version, GameCharacter character) {
+		Bucket bucket = m_buckets[engine.ordinal() * Level.values().length + level.ordinal()];
+		bucket.update(TrackTimeStore.getStore(engine, level));
+		int row = bucket.get(version, character);
+		return row != -1 ? bucket.m_store.getPhantom(row) : null;
+	}
+}
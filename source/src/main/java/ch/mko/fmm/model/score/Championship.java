@@ -1,5 +1,7 @@
 package main.java.ch.mko.fmm.model.score;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -11,9 +13,7 @@ import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.IntStream;
 
-import crc.CRC96;
 import main.java.ch.mko.fmm.i18n.I18N;
 import main.java.ch.mko.fmm.i18n.I18NLocale;
 import main.java.ch.mko.fmm.model.enums.GameCharacter;
@@ -23,6 +23,7 @@ import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
 import main.java.ch.mko.fmm.model.score.Player.PlayerType;
 import main.java.ch.mko.fmm.model.score.Settings.SettingsType;
 import main.java.ch.mko.fmm.util.FileUtils;
+import main.java.ch.mko.fmm.util.StreamingCRC96;
 
 public class Championship extends SettingsItem implements HighscoreItem {
 
@@ -48,6 +49,19 @@ public class Championship extends SettingsItem implements HighscoreItem {
 		m_settings = settings;	
 	}
 	
+	static Championship fromIndex(String inputFilePath, DataInput in, boolean valid) throws IOException {
+		Championship championship = new Championship(new Settings(inputFilePath));
+		championship.m_twoPlayerMode = in.readBoolean();
+		for (int i = 0; i < championship.m_trackTimes.length; i++) {
+			for (int j = 0; j < championship.m_trackTimes[i].length; j++) {
+				championship.m_trackTimes[i][j] = new TrackTime(championship);
+				championship.m_trackTimes[i][j].readInfos(in);
+			}
+		}
+		championship.setKnownValidity(valid);
+		return championship;
+	}
+	
 	public static Level[] getOrderedLevelsByName(String champName) {
 		return Arrays.stream(champName.split("-"))
 			.mapToInt(Integer::parseInt)
@@ -204,6 +218,7 @@ public class Championship extends SettingsItem implements HighscoreItem {
 		}
 		m_content[race] = raceContent;
 		m_frontContent = frontContent;
+		infosChanged();
 	}
 	
 	public String getDefaultName() {
@@ -261,10 +276,11 @@ public class Championship extends SettingsItem implements HighscoreItem {
 	}
 	
 	@Override
-	protected byte[] getHashBytes() {
-		byte[] part1 = m_frontContent;
-		byte[] part2 = getAllRacesContent();
-		return CRC96.fromBytes2(part1, part2).getValue();
+	protected void updateHash(StreamingCRC96 crc) {
+		crc.updateFirstPart(m_frontContent, 0, m_frontContent.length);
+		for (byte[] raceContent : m_content) {
+			crc.update(raceContent, 0, raceContent.length);
+		}
 	}
 
 	@Override
@@ -273,7 +289,17 @@ public class Championship extends SettingsItem implements HighscoreItem {
 	}
 	
 	@Override
-	public String getTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
+	protected void writeIndex(DataOutput out) throws IOException {
+		out.writeBoolean(m_twoPlayerMode);
+		for (TrackTime[] raceTrackTimes : m_trackTimes) {
+			for (TrackTime trackTime : raceTrackTimes) {
+				trackTime.writeInfos(out);
+			}
+		}
+	}
+	
+	@Override
+	protected String createTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
 		String tableStyle = "style=\"border: 1px solid black\"";
 		String tableStyleBold = "style=\"border: 2px solid black\"";
 		String tdStyle = "style=\"border-bottom: 1px solid black\"";
@@ -286,19 +312,26 @@ public class Championship extends SettingsItem implements HighscoreItem {
 		}
 		showCharacters.add(getCharacterIdx()[characterOrdinal]);
 		
-		return "<html>" + TrackTime.getDateTimeString(getLastModified()) + " - " + getChampionshipRelativePath()
-				+ (showDetails ? "<br/><br/>"
-				+ "<table>" + showCharacters.stream()
-						.map(j -> "<tr><td>" + I18NLocale.getString(I18N.PLAYER) + " " + m_trackTimes[0][j].getPlayer() + ":</td></tr><tr>" + IntStream.range(0, 4)
-							.mapToObj(i -> {
-								boolean fromThisRace = (race == Highscore.NOT_SPECIFIED || race == i)
-										&& m_trackTimes[i][j].getCharacter().ordinal() == characterOrdinal;
-								return "<td>" + m_trackTimes[i][j].getInfoTable(fromThisRace ? tableStyleBold : tableStyle,
-										tdStyle, fromThisRace ? boldRows : null,
-										new String[][] { new String[] { I18N.POINTS.name(), "", "" + getPoints(i, j) } }) + "</td>";
-							})
-							.reduce("", (a, b) -> a + b) + "</tr>")
-						.reduce("", (a, b) -> a + b)
-				+ "</table>" : "") + "</html>";
+		StringBuilder sb = new StringBuilder("<html>").append(TrackTime.getDateTimeString(getLastModified()))
+				.append(" - ").append(getChampionshipRelativePath());
+		if (showDetails) {
+			sb.append("<br/><br/><table>");
+			for (int j : showCharacters) {
+				sb.append("<tr><td>").append(I18NLocale.getString(I18N.PLAYER)).append(' ').append(m_trackTimes[0][j].getPlayer())
+						.append(":</td></tr><tr>");
+				for (int i = 0; i < 4; i++) {
+					boolean fromThisRace = (race == Highscore.NOT_SPECIFIED || race == i)
+							&& m_trackTimes[i][j].getCharacter().ordinal() == characterOrdinal;
+					sb.append("<td>");
+					m_trackTimes[i][j].appendInfoTable(sb, fromThisRace ? tableStyleBold : tableStyle,
+							tdStyle, fromThisRace ? boldRows : null,
+							new String[][] { new String[] { I18N.POINTS.name(), "", "" + getPoints(i, j) } });
+					sb.append("</td>");
+				}
+				sb.append("</tr>");
+			}
+			sb.append("</table>");
+		}
+		return sb.append("</html>").toString();
 	}
 }
@@ -0,0 +1,205 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import main.java.ch.mko.fmm.MainFrame;
+import main.java.ch.mko.fmm.model.enums.Engine;
+import main.java.ch.mko.fmm.model.enums.Level;
+import main.java.ch.mko.fmm.util.ArchiveLoader;
+
+/**
+ * The saved championships of one engine by the levels of their races. The times
+ * of a level are selected from the races on this level only, instead of reading
+ * all championships whose directory name contains the level.
+ */
+public class ChampionshipLevelIndex {
+
+	private static final ChampionshipLevelIndex[] indices = new ChampionshipLevelIndex[Engine.values().length];
+
+	private final Engine m_engine;
+
+	private final List<List<LevelRaces>> m_levelRaces = new ArrayList<>();
+
+	private final Set<String> m_indexedPaths = new HashSet<>();
+
+	/**
+	 * The championship directories of the engine and their modifications when
+	 * they were read, the parent directory is the first one.
+	 */
+	private File[] m_dirs;
+
+	private long[] m_dirsLastModified;
+
+	/**
+	 * The races of a championship on one level.
+	 */
+	public static class LevelRaces {
+
+		private final Championship m_championship;
+
+		private final int[] m_races;
+
+		private LevelRaces(Championship championship, int[] races) {
+			m_championship = championship;
+			m_races = races;
+		}
+
+		public Championship getChampionship() {
+			return m_championship;
+		}
+
+		public int[] getRaces() {
+			return m_races.clone();
+		}
+	}
+
+	private ChampionshipLevelIndex(Engine engine) {
+		m_engine = engine;
+		for (int i = 0; i < Level.values().length; i++) {
+			m_levelRaces.add(new CopyOnWriteArrayList<>());
+		}
+	}
+
+	/**
+	 * Returns the index of the saved championships, which are read again if a
+	 * championship directory changed since they were read the last time.
+	 *
+	 * @throws UncheckedIOException if the reading was interrupted
+	 */
+	public static synchronized ChampionshipLevelIndex getIndex(Engine engine) {
+		ChampionshipLevelIndex index = indices[engine.ordinal()];
+		if (index == null || index.isOutdated()) {
+			index = new ChampionshipLevelIndex(engine);
+			index.load();
+			indices[engine.ordinal()] = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a newly saved championship to the index of its engine, so the
+	 * championship directories are not read again. A championship which was
+	 * already read by a reload after it was saved is not added twice.
+	 *
+	 * @param championship the saved championship
+	 */
+	public static synchronized void add(Championship championship) {
+		ChampionshipLevelIndex index = indices[championship.getTrackTime(0, 0).getEngine().ordinal()];
+		if (index != null) {
+			index.addChampionship(championship);
+			index.updateDirs();
+		}
+	}
+
+	private File[] listDirs() {
+		String prefix = "championship-" + (m_engine.ordinal() + 1);
+		File[] champDirs = new File(Championship.CHAMPIONSHIP_DIR).listFiles(
+				file -> file.isDirectory() && file.getName().startsWith(prefix));
+		List<File> dirs = new ArrayList<>();
+		dirs.add(new File(Championship.CHAMPIONSHIP_DIR));
+		if (champDirs != null) {
+			Collections.addAll(dirs, champDirs);
+		}
+		return dirs.toArray(new File[dirs.size()]);
+	}
+
+	private void updateDirs() {
+		m_dirs = listDirs();
+		m_dirsLastModified = new long[m_dirs.length];
+		for (int i = 0; i < m_dirs.length; i++) {
+			m_dirsLastModified[i] = m_dirs[i].lastModified();
+		}
+	}
+
+	private boolean isOutdated() {
+		for (int i = 0; i < m_dirs.length; i++) {
+			if (m_dirs[i].lastModified() != m_dirsLastModified[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void load() {
+		updateDirs();
+		File[] champDirs = new File[m_dirs.length - 1];
+		System.arraycopy(m_dirs, 1, champDirs, 0, champDirs.length);
+		List<File> files = ArchiveLoader.listFiles(champDirs);
+		HighscoreIndex index = HighscoreIndex.getIndex();
+		List<Championship> championships;
+		try {
+			championships = ArchiveLoader.loadAll(files, file -> {
+				try {
+					return index.getChampionship(file);
+				} catch (ClosedByInterruptException | InterruptedIOException ie) {
+					throw ie;
+				} catch (IOException | RuntimeException e) {
+					// a missing or corrupt file is skipped instead of failing the whole loading
+					e.printStackTrace();
+					return null;
+				}
+			});
+		} catch (IOException ioe) {
+			// only thrown if the loading was interrupted, the other exceptions are handled per file
+			throw new UncheckedIOException(ioe);
+		}
+
+		for (int i = 0; i < championships.size(); i++) {
+			if (championships.get(i) != null) {
+				addChampionship(championships.get(i));
+			} else {
+				MainFrame.LOG_PANEL.warn("Championship " + files.get(i).getAbsolutePath() + " is not valid!");
+			}
+		}
+		index.saveIndex();
+	}
+
+	private void addChampionship(Championship championship) {
+		if (!m_indexedPaths.add(championship.getChampionshipRelativePath())) {
+			return;
+		}
+		for (Level level : Level.values()) {
+			int[] races = getRaces(championship, level);
+			if (races.length > 0) {
+				m_levelRaces.get(level.ordinal()).add(new LevelRaces(championship, races));
+			}
+		}
+	}
+
+	/**
+	 * @return the indices of the races of the championship on the level
+	 */
+	static int[] getRaces(Championship championship, Level level) {
+		Level[] levels = championship.getLevels();
+		int[] races = new int[levels.length];
+		int count = 0;
+		for (int race = 0; race < levels.length; race++) {
+			if (levels[race] == level) {
+				races[count++] = race;
+			}
+		}
+		return Arrays.copyOf(races, count);
+	}
+
+	public Engine getEngine() {
+		return m_engine;
+	}
+
+	/**
+	 * @return the championships with races on the level in the order they were read
+	 */
+	public List<LevelRaces> getLevelRaces(Level level) {
+		return Collections.unmodifiableList(m_levelRaces.get(level.ordinal()));
+	}
+}
@@ -1,5 +1,7 @@
 package main.java.ch.mko.fmm.model.score;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -8,12 +10,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
 
-import crc.CRC96;
 import main.java.ch.mko.fmm.i18n.I18N;
 import main.java.ch.mko.fmm.i18n.I18NLocale;
 import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
 import main.java.ch.mko.fmm.model.score.Player.PlayerType;
 import main.java.ch.mko.fmm.util.FileUtils;
+import main.java.ch.mko.fmm.util.StreamingCRC96;
 
 public class Duel extends SettingsItem {
 
@@ -31,6 +33,16 @@ public class Duel extends SettingsItem {
 		m_settings = settings;
 	}
 	
+	static Duel fromIndex(String inputFilePath, DataInput in, boolean valid) throws IOException {
+		Duel duel = new Duel(new Settings(inputFilePath));
+		for (int i = 0; i < duel.m_trackTimes.length; i++) {
+			duel.m_trackTimes[i] = new TrackTime(duel);
+			duel.m_trackTimes[i].readInfos(in);
+		}
+		duel.setKnownValidity(valid);
+		return duel;
+	}
+	
 	public String getDuelRelativePath() {
 		return Paths.get(new File(m_settings.getInputFilePath()).getParentFile().getName(), 
 				new File(m_settings.getInputFilePath()).getName()).toString();
@@ -77,6 +89,7 @@ public class Duel extends SettingsItem {
 		
 		m_content = content;
 		m_frontContent = frontContent;
+		infosChanged();
 	}
 	
 	public String getDefaultName() {
@@ -112,10 +125,9 @@ public class Duel extends SettingsItem {
 	}
 
 	@Override
-	protected byte[] getHashBytes() {
-		byte[] part1 = m_frontContent;
-		byte[] part2 = m_content;
-		return CRC96.fromBytes2(part1, part2).getValue();
+	protected void updateHash(StreamingCRC96 crc) {
+		crc.updateFirstPart(m_frontContent, 0, m_frontContent.length);
+		crc.update(m_content, 0, m_content.length);
 	}
 
 	@Override
@@ -124,23 +136,38 @@ public class Duel extends SettingsItem {
 	}
 	
 	@Override
-	public String getTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
+	protected void writeIndex(DataOutput out) throws IOException {
+		for (TrackTime trackTime : m_trackTimes) {
+			trackTime.writeInfos(out);
+		}
+	}
+	
+	@Override
+	protected String createTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
 		String tableStyle = "style=\"border: 1px solid black\"";
 		String tableStyleBold = "style=\"border: 2px solid black\"";
 		String tdStyle = "style=\"border-bottom: 1px solid black\"";
 		String[] boldRows = new String[] { roundIdx != -1 ? I18N.ROUNDS.name() + (roundIdx+1) : I18N.TIME.name() };
-		return "<html>" + TrackTime.getDateTimeString(getLastModified()) + " - " + getDuelRelativePath()
-				+ (showDetails ? "<br/><br/>"
-				+ "<table>" + Arrays.stream(m_trackTimes)
-						.map(t -> {
-							boolean fromThisRace = t.getCharacter().ordinal() == characterOrdinal;
-							return "<tr><td>" + I18NLocale.getString(I18N.PLAYER) + " " + t.getPlayer() + ":</td></tr><tr><td>" + t.getInfoTable(fromThisRace ? tableStyleBold : tableStyle, tdStyle,
-									fromThisRace ? boldRows : null,
-									new String[][] { new String[] { I18N.RANK.name(), "", "" 
-											+ (Arrays.stream(m_trackTimes).filter(ot -> Highscore.compareTrackTimes(ot, t) < 0).count()+1)
-									} }) + "</td></tr>";
-						})
-						.reduce("", (a, b) -> a + b)
-				+ "</table>" : "") + "</html>";
+		StringBuilder sb = new StringBuilder("<html>").append(TrackTime.getDateTimeString(getLastModified()))
+				.append(" - ").append(getDuelRelativePath());
+		if (showDetails) {
+			sb.append("<br/><br/><table>");
+			for (TrackTime t : m_trackTimes) {
+				boolean fromThisRace = t.getCharacter().ordinal() == characterOrdinal;
+				int rank = 1;
+				for (TrackTime ot : m_trackTimes) {
+					if (Highscore.compareTrackTimes(ot, t) < 0) {
+						rank++;
+					}
+				}
+				sb.append("<tr><td>").append(I18NLocale.getString(I18N.PLAYER)).append(' ').append(t.getPlayer())
+						.append(":</td></tr><tr><td>");
+				t.appendInfoTable(sb, fromThisRace ? tableStyleBold : tableStyle, tdStyle, fromThisRace ? boldRows : null,
+						new String[][] { new String[] { I18N.RANK.name(), "", "" + rank } });
+				sb.append("</td></tr>");
+			}
+			sb.append("</table>");
+		}
+		return sb.append("</html>").toString();
 	}
 }
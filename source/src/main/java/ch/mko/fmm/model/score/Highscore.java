@@ -1,6 +1,7 @@
 package main.java.ch.mko.fmm.model.score;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Highscore implements Comparable<Highscore> {
@@ -15,11 +16,17 @@ public class Highscore implements Comparable<Highscore> {
 	
 	private final int m_race;
 	
+	private final long m_lastModified;
+	
+	private final long m_sortKey;
+	
 	public Highscore(HighscoreItem highscoreItem, int round, int characterIdx, int race) {
 		m_highscoreItem = highscoreItem;
 		m_round = round;
 		m_championshipCharacterIdx = characterIdx;
 		m_race = race;
+		m_lastModified = highscoreItem.getLastModified();
+		m_sortKey = getSortKey(getTimeValue(), m_lastModified);
 	}
 	
 	public Highscore(TrackTime trackTime, int round) {
@@ -84,13 +91,297 @@ public class Highscore implements Comparable<Highscore> {
 		}
 	}
 
+	/**
+	 * Packs the time and the seconds of the last modification into a key with
+	 * the same order as {@link #compareTo(Highscore)}, except for equal times
+	 * within the same second.
+	 */
+	static long getSortKey(float timeValue, long lastModified) {
+		int timeBits = Float.floatToIntBits(timeValue);
+		timeBits ^= (timeBits >> 31) & 0x7FFFFFFF;
+		long seconds = Math.min(Math.max(Math.floorDiv(lastModified, 1000), 0), 0xFFFFFFFFL);
+		return ((long) timeBits << 32) | seconds;
+	}
+
 	@Override
 	public int compareTo(Highscore h) {
-		int result = Float.compare(getTimeValue(), h.getTimeValue());
+		int result = Long.compare(m_sortKey, h.m_sortKey);
 		if (result != 0) {
 			return result;
 		} else {
-			return Long.compare(m_highscoreItem.getLastModified(), h.getHighscoreItem().getLastModified());
+			return Long.compare(m_lastModified, h.m_lastModified);
+		}
+	}
+	
+	/**
+	 * Sorts the highscores like {@link java.util.Collections#sort(List)}, but
+	 * compares the precomputed keys in primitive arrays and only moves the
+	 * highscores once in the end.
+	 * 
+	 * @param highscores the highscores to sort
+	 * @return the sorted highscores
+	 */
+	public static Highscore[] sortHighscores(List<Highscore> highscores) {
+		int count = highscores.size();
+		long[] sortKeys = new long[count];
+		long[] lastModified = new long[count];
+		for (int i = 0; i < count; i++) {
+			Highscore highscore = highscores.get(i);
+			sortKeys[i] = highscore.m_sortKey;
+			lastModified[i] = highscore.m_lastModified;
+		}
+		
+		int[] order = sortOrder(sortKeys, lastModified, count);
+		
+		Highscore[] sortedHighscores = new Highscore[count];
+		for (int i = 0; i < count; i++) {
+			sortedHighscores[i] = highscores.get(order[i]);
+		}
+		return sortedHighscores;
+	}
+	
+	/**
+	 * Sorts the keys of {@link #getSortKey(float, long)} stably.
+	 * 
+	 * @param count the number of used keys
+	 * @return the indices of the keys in sorted order
+	 */
+	static int[] sortOrder(long[] sortKeys, long[] lastModified, int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		mergeSort(order, new int[count], 0, count, sortKeys, lastModified);
+		return order;
+	}
+	
+	private static void mergeSort(int[] order, int[] buffer, int from, int to, long[] sortKeys, long[] lastModified) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle, sortKeys, lastModified);
+		mergeSort(order, buffer, middle, to, sortKeys, lastModified);
+		if (compare(order[middle - 1], order[middle], sortKeys, lastModified) <= 0) {
+			return;
+		}
+		
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && compare(buffer[left], buffer[right], sortKeys, lastModified) <= 0)) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+	
+	private static int compare(int i, int j, long[] sortKeys, long[] lastModified) {
+		int result = Long.compare(sortKeys[i], sortKeys[j]);
+		return result != 0 ? result : Long.compare(lastModified[i], lastModified[j]);
+	}
+
+	/**
+	 * Selects the best keys like {@link #sortOrder(long[], long[], int)}, but only
+	 * keeps them in a {@link KeyHeap}, so selecting n keys takes O(n log k) time.
+	 *
+	 * @param count the number of used keys
+	 * @param limit the number of selected keys
+	 * @return the indices of the best keys in sorted order
+	 */
+	static int[] selectOrder(long[] sortKeys, long[] lastModified, int count, int limit) {
+		KeyHeap heap = new KeyHeap(Math.min(Math.max(limit, 0), count));
+		int[] indices = new int[heap.capacity()];
+		for (int i = 0; i < count; i++) {
+			int slot = heap.offer(sortKeys[i], lastModified[i]);
+			if (slot != -1) {
+				indices[slot] = i;
+			}
+		}
+		
+		int[] slots = heap.getSortedSlots();
+		int[] order = new int[slots.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = indices[slots[i]];
+		}
+		return order;
+	}
+	
+	/**
+	 * A bounded heap of the best keys of {@link #getSortKey(float, long)}. The
+	 * worst kept key is the root and of equal keys the later offered one is worse,
+	 * so the same keys are kept as by a stable sort. The keys are stored in slots,
+	 * where the slot of a dropped key is reused by the key which replaced it.
+	 */
+	private static class KeyHeap {
+		
+		private final long[] m_sortKeys;
+		
+		private final long[] m_lastModified;
+		
+		private final int[] m_offerOrder;
+		
+		/**
+		 * The slots of the kept keys in heap order.
+		 */
+		private final int[] m_heap;
+		
+		private int m_size;
+		
+		private int m_offerCount;
+		
+		private KeyHeap(int capacity) {
+			m_sortKeys = new long[capacity];
+			m_lastModified = new long[capacity];
+			m_offerOrder = new int[capacity];
+			m_heap = new int[capacity];
+		}
+		
+		private int capacity() {
+			return m_heap.length;
+		}
+		
+		/**
+		 * @return the slot of the key or -1 if it is not kept
+		 */
+		private int offer(long sortKey, long lastModified) {
+			int order = m_offerCount++;
+			int slot;
+			if (m_size < m_heap.length) {
+				slot = m_size;
+				set(slot, sortKey, lastModified, order);
+				m_heap[m_size] = slot;
+				siftUp(m_size++);
+			} else if (m_size > 0 && (sortKey < m_sortKeys[m_heap[0]]
+					|| (sortKey == m_sortKeys[m_heap[0]] && lastModified < m_lastModified[m_heap[0]]))) {
+				slot = m_heap[0];
+				set(slot, sortKey, lastModified, order);
+				siftDown(m_heap, m_size, 0);
+			} else {
+				return -1;
+			}
+			return slot;
+		}
+		
+		private void set(int slot, long sortKey, long lastModified, int order) {
+			m_sortKeys[slot] = sortKey;
+			m_lastModified[slot] = lastModified;
+			m_offerOrder[slot] = order;
+		}
+		
+		/**
+		 * @return the slots of the kept keys in sorted order
+		 */
+		private int[] getSortedSlots() {
+			int[] heap = Arrays.copyOf(m_heap, m_size);
+			int[] slots = new int[m_size];
+			for (int size = m_size; size > 0; size--) {
+				slots[size - 1] = heap[0];
+				heap[0] = heap[size - 1];
+				siftDown(heap, size - 1, 0);
+			}
+			return slots;
+		}
+		
+		private boolean isWorse(int slot1, int slot2) {
+			int result = compare(slot1, slot2, m_sortKeys, m_lastModified);
+			return result > 0 || (result == 0 && m_offerOrder[slot1] > m_offerOrder[slot2]);
+		}
+		
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!isWorse(m_heap[i], m_heap[parent])) {
+					return;
+				}
+				swap(m_heap, i, parent);
+				i = parent;
+			}
+		}
+		
+		private void siftDown(int[] heap, int size, int i) {
+			while (true) {
+				int worst = i;
+				int left = 2 * i + 1;
+				int right = left + 1;
+				if (left < size && isWorse(heap[left], heap[worst])) {
+					worst = left;
+				}
+				if (right < size && isWorse(heap[right], heap[worst])) {
+					worst = right;
+				}
+				if (worst == i) {
+					return;
+				}
+				swap(heap, i, worst);
+				i = worst;
+			}
+		}
+		
+		private static void swap(int[] heap, int i, int j) {
+			int slot = heap[i];
+			heap[i] = heap[j];
+			heap[j] = slot;
+		}
+	}
+	
+	/**
+	 * The collection of selected highscores. If the rank is limited, only the best
+	 * highscores are kept in a {@link KeyHeap}, so selecting n highscores takes
+	 * O(n log k) time and O(k) memory instead of sorting all of them.
+	 */
+	public static class Selection {
+		
+		private final int m_limit;
+		
+		private final List<Highscore> m_highscores = new ArrayList<>();
+		
+		private final KeyHeap m_heap;
+		
+		private final Highscore[] m_keptHighscores;
+		
+		/**
+		 * @param limitToRank the number of kept highscores or -1 to keep all of them
+		 */
+		public Selection(int limitToRank) {
+			m_limit = limitToRank;
+			m_heap = new KeyHeap(Math.max(limitToRank, 0));
+			m_keptHighscores = new Highscore[m_heap.capacity()];
+		}
+		
+		public void addAll(List<Highscore> highscores) {
+			for (Highscore highscore : highscores) {
+				add(highscore);
+			}
+		}
+		
+		public void add(Highscore highscore) {
+			if (m_limit == -1) {
+				m_highscores.add(highscore);
+			} else {
+				int slot = m_heap.offer(highscore.m_sortKey, highscore.m_lastModified);
+				if (slot != -1) {
+					m_keptHighscores[slot] = highscore;
+				}
+			}
+		}
+		
+		/**
+		 * @return the kept highscores in the same order as {@link Highscore#sortHighscores(List)}
+		 */
+		public Highscore[] getSortedHighscores() {
+			if (m_limit == -1) {
+				return sortHighscores(m_highscores);
+			}
+			
+			int[] slots = m_heap.getSortedSlots();
+			Highscore[] highscores = new Highscore[slots.length];
+			for (int i = 0; i < slots.length; i++) {
+				highscores[i] = m_keptHighscores[slots[i]];
+			}
+			return highscores;
 		}
 	}
 	
@@ -0,0 +1,84 @@
+package main.java.ch.mko.fmm.model.score;
+
+import main.java.ch.mko.fmm.model.enums.GameCharacter;
+import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
+import main.java.ch.mko.fmm.model.score.Player.PlayerType;
+
+/**
+ * The filters of the highscores compiled into bit masks, so each highscore is
+ * only checked by a few bit operations instead of comparing the filter objects.
+ */
+public class HighscoreFilter {
+
+	private static final int ALL = -1;
+
+	/**
+	 * The bit of a version which is unknown, it only matches if the version is not filtered.
+	 */
+	private static final int UNKNOWN_VERSION = Version.values().length;
+
+	private final GameCharacter m_characterFilter;
+
+	private final int m_characterMask;
+
+	private final int m_versionMask;
+
+	/**
+	 * The masks of the player types and origins per filtered player.
+	 */
+	private final int[] m_playerTypeMasks;
+
+	private final int[] m_playerOriginMasks;
+
+	/**
+	 * The filtered players if one of them has a name, which cannot be compiled into a mask.
+	 */
+	private final Player[] m_namedPlayers;
+
+	public HighscoreFilter(GameCharacter characterFilter, Player[] playerFilter, Version versionFilter) {
+		m_characterFilter = characterFilter;
+		m_characterMask = characterFilter != null ? 1 << characterFilter.ordinal() : ALL;
+		m_versionMask = versionFilter != null ? 1 << versionFilter.ordinal() : ALL;
+
+		boolean hasNames = false;
+		m_playerTypeMasks = new int[playerFilter.length];
+		m_playerOriginMasks = new int[playerFilter.length];
+		for (int i = 0; i < playerFilter.length; i++) {
+			Player player = playerFilter[i];
+			hasNames |= player.getPlayerName() != null;
+			m_playerTypeMasks[i] = player.getPlayerType() != null ? 1 << player.getPlayerType().ordinal() : ALL;
+			m_playerOriginMasks[i] = player.getPlayerOrigin() != null ? 1 << player.getPlayerOrigin().ordinal() : ALL;
+		}
+		m_namedPlayers = hasNames ? playerFilter : null;
+	}
+
+	public GameCharacter getCharacterFilter() {
+		return m_characterFilter;
+	}
+
+	public boolean matchesCharacter(int characterIdx) {
+		return m_characterMask == ALL || (characterIdx >= 0 && characterIdx < 32 && (m_characterMask & 1 << characterIdx) != 0);
+	}
+
+	public boolean matchesVersion(Version version) {
+		return (m_versionMask & 1 << (version != null ? version.ordinal() : UNKNOWN_VERSION)) != 0;
+	}
+
+	public boolean matchesPlayer(Player player) {
+		if (m_namedPlayers != null) {
+			return player.isMember(m_namedPlayers);
+		}
+
+		PlayerType playerType = player.getPlayerType();
+		PlayerOrigin playerOrigin = player.getPlayerOrigin();
+		int typeBit = playerType != null ? 1 << playerType.ordinal() : ALL;
+		int originBit = playerOrigin != null ? 1 << playerOrigin.ordinal() : ALL;
+		for (int i = 0; i < m_playerTypeMasks.length; i++) {
+			if ((m_playerTypeMasks[i] & typeBit) != 0 && (m_playerOriginMasks[i] & originBit) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,232 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import main.java.ch.mko.fmm.MainFrame;
+
+/**
+ * The on-disk index of the saved phantoms, championships and duels.
+ * Each file is only decoded again if its size or its last modification
+ * changed since it was added to the index.
+ */
+public class HighscoreIndex {
+
+	public static final String INDEX_DIR = "data" + File.separator + "index";
+
+	private static final File INDEX_FILE = new File(INDEX_DIR + File.separator + "highscores.idx");
+
+	private static final int INDEX_MAGIC = 0x4D484B49;
+
+	private static final int INDEX_FORMAT = 1;
+
+	private static HighscoreIndex index;
+
+	private final Map<String, IndexEntry> m_entries = new HashMap<>();
+
+	private boolean m_changed;
+
+	private final ThreadLocal<PhantomHeader> m_phantomHeader = ThreadLocal.withInitial(PhantomHeader::new);
+
+	private static class IndexEntry {
+
+		private final long m_size;
+
+		private final long m_lastModified;
+
+		private final boolean m_valid;
+
+		private final byte[] m_infos;
+
+		private IndexEntry(long size, long lastModified, boolean valid, byte[] infos) {
+			m_size = size;
+			m_lastModified = lastModified;
+			m_valid = valid;
+			m_infos = infos;
+		}
+
+		private boolean isUpToDate(File file) {
+			return m_size == file.length() && m_lastModified == file.lastModified();
+		}
+	}
+
+	private static interface ItemDecoder<T extends SettingsItem> {
+		T decode(String path) throws IOException;
+	}
+
+	private static interface ItemRestorer<T extends SettingsItem> {
+		T restore(String path, DataInput in, boolean valid) throws IOException;
+	}
+
+	private HighscoreIndex() {
+	}
+
+	public static synchronized HighscoreIndex getIndex() {
+		if (index == null) {
+			index = new HighscoreIndex();
+			if (INDEX_FILE.isFile()) {
+				try {
+					index.loadIndex();
+				} catch (IOException e) {
+					index.m_entries.clear();
+					MainFrame.LOG_PANEL.warn("Could not restore highscore index, it will be rebuilt: " + e.getMessage());
+				}
+			}
+		}
+
+		return index;
+	}
+
+	private void loadIndex() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(INDEX_FILE)))) {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_FORMAT) {
+				throw new IOException("Unknown format of " + INDEX_FILE.getPath());
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				boolean valid = in.readBoolean();
+				byte[] infos = new byte[in.readInt()];
+				in.readFully(infos);
+				m_entries.put(path, new IndexEntry(size, lastModified, valid, infos));
+			}
+		}
+	}
+
+	/**
+	 * Writes the index to disk if it changed since it was loaded or saved the last time.
+	 */
+	public synchronized void saveIndex() {
+		if (!m_changed) {
+			return;
+		}
+
+		File tempFile = new File(INDEX_FILE.getPath() + ".tmp");
+		try {
+			if (!INDEX_FILE.getParentFile().isDirectory()) {
+				Files.createDirectories(INDEX_FILE.getParentFile().toPath());
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_FORMAT);
+				out.writeInt(m_entries.size());
+				for (Map.Entry<String, IndexEntry> entry : m_entries.entrySet()) {
+					IndexEntry indexEntry = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeLong(indexEntry.m_size);
+					out.writeLong(indexEntry.m_lastModified);
+					out.writeBoolean(indexEntry.m_valid);
+					out.writeInt(indexEntry.m_infos.length);
+					out.write(indexEntry.m_infos);
+				}
+			}
+			try {
+				Files.move(tempFile.toPath(), INDEX_FILE.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), INDEX_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			m_changed = false;
+
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+			MainFrame.LOG_PANEL.error("Error while saving highscore index: " + ioe.getMessage(), ioe);
+		}
+	}
+
+	/**
+	 * @param file the saved phantom
+	 * @return the phantom or {@code null} if it is not valid
+	 * @throws IOException if the phantom cannot be read
+	 */
+	public Phantom getPhantom(File file) throws IOException {
+		return getItem(file, path -> Phantom.readHeader(path, m_phantomHeader.get()), Phantom::fromIndex);
+	}
+
+	/**
+	 * @param file the saved championship
+	 * @return the championship or {@code null} if it is not valid
+	 * @throws IOException if the championship cannot be read
+	 */
+	public Championship getChampionship(File file) throws IOException {
+		return getItem(file, path -> {
+			Championship championship = new Championship(new Settings(path, false));
+			championship.updateChampionshipInfos(true);
+			return championship;
+		}, Championship::fromIndex);
+	}
+
+	/**
+	 * @param file the saved duel
+	 * @return the duel or {@code null} if it is not valid
+	 * @throws IOException if the duel cannot be read
+	 */
+	public Duel getDuel(File file) throws IOException {
+		return getItem(file, path -> {
+			Duel duel = new Duel(new Settings(path, false));
+			duel.updateDuelInfos();
+			return duel;
+		}, Duel::fromIndex);
+	}
+
+	/**
+	 * Returns the item of the file. Can be called concurrently, only the lookup
+	 * and the update of the entries are synchronized.
+	 */
+	private <T extends SettingsItem> T getItem(File file, ItemDecoder<T> decoder,
+			ItemRestorer<T> restorer) throws IOException {
+		String path = file.getAbsolutePath();
+		IndexEntry entry;
+		synchronized (this) {
+			entry = m_entries.get(path);
+		}
+		if (entry != null && entry.isUpToDate(file)) {
+			if (!entry.m_valid) {
+				return null;
+			}
+			try {
+				return restorer.restore(path, new DataInputStream(new ByteArrayInputStream(entry.m_infos)), true);
+			} catch (IOException | RuntimeException e) {
+				MainFrame.LOG_PANEL.warn("Could not restore " + path + " from highscore index: " + e.getMessage());
+				synchronized (this) {
+					m_entries.remove(path);
+				}
+			}
+		}
+
+		long size = file.length();
+		long lastModified = file.lastModified();
+		T item = decoder.decode(path);
+		boolean valid = item.isValid();
+		byte[] infos = new byte[0];
+		if (valid) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				item.writeIndex(out);
+			}
+			infos = bytes.toByteArray();
+		}
+		synchronized (this) {
+			m_entries.put(path, new IndexEntry(size, lastModified, valid, infos));
+			m_changed = true;
+		}
+
+		return valid ? item : null;
+	}
+}
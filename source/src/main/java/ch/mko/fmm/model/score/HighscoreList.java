@@ -1,57 +1,155 @@
 package main.java.ch.mko.fmm.model.score;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedByInterruptException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import main.java.ch.mko.fmm.MainFrame;
-import main.java.ch.mko.fmm.i18n.I18N;
-import main.java.ch.mko.fmm.i18n.I18NLocale;
 import main.java.ch.mko.fmm.model.enums.Engine;
-import main.java.ch.mko.fmm.model.enums.GameCharacter;
 import main.java.ch.mko.fmm.model.enums.Level;
-import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.model.score.ChampionshipLevelIndex.LevelRaces;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings.HighscoreMode;
+import main.java.ch.mko.fmm.util.ArchiveLoader;
 
+/**
+ * Executes the {@link HighscoreQuery highscore queries}. The items read from the
+ * saved files are kept for the following queries with the same generator and
+ * the results of the last queries are cached until an item is saved for them.
+ */
 public class HighscoreList {
 	
-	private final HighscoreSettings m_highscoreSettings;
-
-	private final List<HighscoreItem> m_highscoreList = new ArrayList<>();
+	private static final int MAX_CACHED_RESULTS = 32;
+	
+	private Generation m_generation;
 	
-	private Highscore[] m_selectedHighscores;
+	/**
+	 * The results of the last queries in the order of their use.
+	 */
+	private final Map<HighscoreQuery, HighscoreResult> m_cachedResults = new LinkedHashMap<HighscoreQuery, HighscoreResult>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 2270412583637785915L;
 
-	public HighscoreList(HighscoreSettings highscoreSettings) {
-		m_highscoreSettings = highscoreSettings;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<HighscoreQuery, HighscoreResult> eldest) {
+			return size() > MAX_CACHED_RESULTS;
+		}
+	};
+	
+	/**
+	 * The number of invalidations, so a result which was selected before an
+	 * invalidation is not cached afterwards.
+	 */
+	private long m_invalidations;
+	
+	/**
+	 * The items read for the generator of a query, which are not changed anymore.
+	 */
+	private static class Generation {
+		
+		private final HighscoreQuery m_query;
+		
+		private final List<HighscoreItem> m_items;
+		
+		private Generation(HighscoreQuery query, List<HighscoreItem> items) {
+			m_query = query;
+			m_items = Collections.unmodifiableList(items);
+		}
 	}
 	
-	public HighscoreSettings getSettings() {
-		return m_highscoreSettings;
+	/**
+	 * Drops the cached results of all queries which select the highscores of a
+	 * newly saved item, i.e. of the same mode, engine and level.
+	 * 
+	 * @param savedItem the item that was saved
+	 */
+	public void invalidate(SettingsItem savedItem) {
+		synchronized (m_cachedResults) {
+			m_invalidations++;
+			m_cachedResults.keySet().removeIf(query -> !getGeneratedItems(query, savedItem).isEmpty());
+		}
 	}
 	
-	public void generateHighscores(HighscoreMode mode, String champName, Level level, Engine engine) {
-		File[] highscoreDirs = null;
-		Level[] orderedLevels = Championship.getOrderedLevelsByName(champName);
+	/**
+	 * Selects the highscores of a query. The result is taken from the cache if the
+	 * query was executed before. The saved files are only read if the generator
+	 * of the query changed.
+	 */
+	public HighscoreResult execute(HighscoreQuery query) {
+		long invalidations;
+		synchronized (m_cachedResults) {
+			HighscoreResult result = m_cachedResults.get(query);
+			if (result != null) {
+				return result;
+			}
+			invalidations = m_invalidations;
+		}
+		
+		HighscoreResult result = select(query);
+		synchronized (m_cachedResults) {
+			if (invalidations == m_invalidations) {
+				m_cachedResults.put(query, result);
+			}
+		}
+		return result;
+	}
+	
+	private HighscoreResult select(HighscoreQuery query) {
+		HighscoreMode mode = query.getMode();
+		if (mode == HighscoreMode.TIME_TRIAL || mode == HighscoreMode.CHAMPIONSHIP_TIMES) {
+			// the generated items would not be updated by the items saved while these modes are shown
+			clearGeneration();
+		}
 		if (mode == HighscoreMode.TIME_TRIAL) {
-			highscoreDirs = new File[] {new File(Phantom.PHANTOM_DIR + File.separator + "phantom-"
-					+ (engine.ordinal() + 1) + "-" + String.format("%02d", level.ordinal() + 1))};
+			// the trials are kept in the track time store
+			Highscore[] highscores = TrackTimeStore.getStore(query.getEngine(), query.getLevel())
+					.selectHighscores(query.getFilter(), query.getRoundsFilter(), query.getRankLimit());
+			return new HighscoreResult(query, highscores, new int[0]);
+		}
 		
-		} else if (mode == HighscoreMode.CHAMPIONSHIP_TIMES) {
-			highscoreDirs = new File(Championship.CHAMPIONSHIP_DIR).listFiles(new FilenameFilter() {
-				
-				@Override
-				public boolean accept(File file, String name) {
-					return name.startsWith("championship-" + (engine.ordinal() + 1))
-							&& name.contains("-" + String.format("%02d", level.ordinal() + 1));
-				}
-			});
-		} else if (mode == HighscoreMode.CHAMPIONSHIP) {
+		// if the rank is limited, only the best highscores are kept while selecting instead of sorting all of them
+		HighscoreFilter filter = query.getFilter();
+		Highscore.Selection selection = new Highscore.Selection(query.getRankLimit());
+		if (mode == HighscoreMode.CHAMPIONSHIP_TIMES) {
+			// the championships are kept in the level index
+			for (LevelRaces levelRaces : ChampionshipLevelIndex.getIndex(query.getEngine()).getLevelRaces(query.getLevel())) {
+				selection.addAll(selectRaces(levelRaces.getChampionship(), levelRaces.getRaces(), query.getRoundsFilter(), filter));
+			}
+		} else {
+			for (HighscoreItem item : getGeneration(query).m_items) {
+				selection.addAll(selectHighscores(query, item, filter));
+			}
+		}
+		return new HighscoreResult(query, selection.getSortedHighscores(), new int[0]);
+	}
+	
+	private synchronized Generation getGeneration(HighscoreQuery query) {
+		if (m_generation == null || !m_generation.m_query.hasSameGenerator(query)) {
+			m_generation = new Generation(query, generateHighscores(query));
+		}
+		return m_generation;
+	}
+	
+	private synchronized void clearGeneration() {
+		m_generation = null;
+	}
+	
+	private static List<HighscoreItem> generateHighscores(HighscoreQuery query) {
+		HighscoreMode mode = query.getMode();
+		Level level = query.getLevel();
+		Engine engine = query.getEngine();
+		List<HighscoreItem> highscoreList = new ArrayList<>();
+		File[] highscoreDirs;
+		if (mode == HighscoreMode.CHAMPIONSHIP) {
 			highscoreDirs = new File[] {new File(Championship.CHAMPIONSHIP_DIR + File.separator + "championship-"
-					+ (engine.ordinal() + 1) + "-" + champName)};
+					+ (engine.ordinal() + 1) + "-" + query.getChampName())};
 			
 		} else if (mode == HighscoreMode.DUEL) {
 			highscoreDirs = new File[] {new File(Duel.DUEL_DIR + File.separator + "duel-"
@@ -61,171 +159,216 @@ public class HighscoreList {
 			throw new IllegalArgumentException("Invalid highscore mode!");
 		}
 		
-		m_highscoreSettings.setGenerator(mode, level, orderedLevels, engine);
-		m_highscoreList.clear();
-		
-		for (File highscoreDir : highscoreDirs) {
-			if (highscoreDir.isDirectory()) {
-				File[] highscoreFiles = highscoreDir.listFiles();
-				if (mode == HighscoreMode.TIME_TRIAL) {
-					for (File highscoreFile : highscoreFiles) {
-						try {
-							Phantom phantom = new Phantom(highscoreFile.getAbsolutePath());
-							if (phantom.isValid()) {
-								m_highscoreList.add(phantom.getTrackTime());
-							} else {
-								MainFrame.LOG_PANEL.warn("Phantom " + highscoreFile.getAbsolutePath() + " is not valid!");
-							}
-						} catch (IOException ioe) {
-							ioe.printStackTrace();
-						}
-					}
-				} else if (mode == HighscoreMode.DUEL) {
-					for (File highscoreFile : highscoreFiles) {
-						try {
-							Duel duel = new Duel(new Settings(highscoreFile.getAbsolutePath(), false));
-							duel.updateDuelInfos();
-							if (duel.isValid()) {
-								m_highscoreList.addAll(Arrays.asList(duel.getTrackTimes()));	
-							} else {
-								MainFrame.LOG_PANEL.warn("Duel " + highscoreFile.getAbsolutePath() + " is not valid!");
-							}
-						} catch (IOException ioe) {
-							ioe.printStackTrace();
-						}
+		HighscoreIndex index = HighscoreIndex.getIndex();
+		List<File> highscoreFiles = ArchiveLoader.listFiles(
+				Arrays.stream(highscoreDirs).filter(File::isDirectory).toArray(File[]::new));
+		List<SettingsItem> items;
+		try {
+			items = ArchiveLoader.loadAll(highscoreFiles, highscoreFile -> {
+				try {
+					if (mode == HighscoreMode.DUEL) {
+						return index.getDuel(highscoreFile);
+					} else {
+						return index.getChampionship(highscoreFile);
 					}
+				} catch (ClosedByInterruptException | InterruptedIOException ie) {
+					throw ie;
+				} catch (IOException | RuntimeException e) {
+					// a missing or corrupt file is skipped instead of failing the whole loading
+					e.printStackTrace();
+					return null;
+				}
+			});
+		} catch (IOException ioe) {
+			// only thrown if the loading was interrupted, the other exceptions are handled per file
+			throw new UncheckedIOException(ioe);
+		}
+		
+		for (int i = 0; i < items.size(); i++) {
+			SettingsItem item = items.get(i);
+			String highscorePath = highscoreFiles.get(i).getAbsolutePath();
+			if (mode == HighscoreMode.DUEL) {
+				if (item != null) {
+					highscoreList.addAll(Arrays.asList(((Duel) item).getTrackTimes()));
 				} else {
-					for (File highscoreFile : highscoreFiles) {
-						try {
-							Championship championship = new Championship(new Settings(highscoreFile.getAbsolutePath(), false));
-							championship.updateChampionshipInfos(true);
-							if (championship.isValid()) {
-								m_highscoreList.add(championship);
-							} else {
-								MainFrame.LOG_PANEL.warn("Championship " + highscoreFile.getAbsolutePath() + " is not valid!");
-							}
-						} catch (IOException ioe) {
-							ioe.printStackTrace();
-						}
-					}
+					MainFrame.LOG_PANEL.warn("Duel " + highscorePath + " is not valid!");
+				}
+			} else {
+				if (item != null) {
+					highscoreList.add((Championship) item);
+				} else {
+					MainFrame.LOG_PANEL.warn("Championship " + highscorePath + " is not valid!");
 				}
 			}
 		}
+		index.saveIndex();
+		return highscoreList;
 	}
 	
-	public void selectHighscores(GameCharacter characterFilter, int roundsFilter, Player[] playerFilter, Version versionFilter) {
-		m_highscoreSettings.setFilter(characterFilter, roundsFilter, playerFilter, versionFilter);
-		
+	private static List<Highscore> selectHighscores(HighscoreQuery query, HighscoreItem item, HighscoreFilter filter) {
 		List<Highscore> selectedHighscoreList = new ArrayList<>();
-		if (m_highscoreSettings.getMode() == HighscoreMode.TIME_TRIAL || m_highscoreSettings.getMode() == HighscoreMode.DUEL) {
-			for (HighscoreItem item : m_highscoreList) {
-				TrackTime trackTime = (TrackTime) item;
-				if (characterFilter == null || trackTime.getCharacter() == characterFilter) {
-					if (versionFilter == null || trackTime.getVersion() == versionFilter) {
-						selectedHighscoreList.addAll(Highscore.getHighscoresForRounds(trackTime, roundsFilter, Highscore.NOT_SPECIFIED));	
-					}
-				}
+		int roundsFilter = query.getRoundsFilter();
+		if (query.getMode() == HighscoreMode.TIME_TRIAL || query.getMode() == HighscoreMode.DUEL) {
+			TrackTime trackTime = (TrackTime) item;
+			if (filter.matchesCharacter(trackTime.getCharacterIndex()) && filter.matchesVersion(trackTime.getVersion())) {
+				selectedHighscoreList.addAll(Highscore.getHighscoresForRounds(trackTime, roundsFilter, Highscore.NOT_SPECIFIED));	
 			}
 		} else {
-			for (HighscoreItem item : m_highscoreList) {
-				Championship championship = (Championship) item;
-				if (versionFilter == null || championship.getVersion() == versionFilter) {
-					int[] charIdx = championship.getCharacterIdx();
-					List<Integer> characterIdxList = new ArrayList<>();
-					if (characterFilter == null) {
-						for (int i = 0; i < 7; i++) {
-							if (championship.getPlayer(i).isMember(playerFilter)) {
-								characterIdxList.add(i);
-							}
-						}
-					} else {
-						int characterIndex = charIdx[characterFilter.ordinal()];
-						if (championship.getPlayer(characterIndex).isMember(playerFilter)) {
-							characterIdxList.add(characterIndex);
-						}
-					}
-					
-					if (m_highscoreSettings.getMode() == HighscoreMode.CHAMPIONSHIP_TIMES) {
-						for (int characterIdx : characterIdxList) {
-							List<Integer> levelRaces = new ArrayList<>();
-							for (int i = 0; i < 4; i++) {
-								if (m_highscoreSettings.getLevel() == championship.getLevels()[i]) {
-									levelRaces.add(i);
-								}
-							}
-							for (int race : levelRaces) {
-								selectedHighscoreList.addAll(Highscore.getHighscoresForRounds(
-										championship.getTrackTime(race, characterIdx), roundsFilter, race));
-							}
-						}
-					} else {
-						for (int characterIdx : characterIdxList) {
-							selectedHighscoreList.add(new Highscore(championship, Highscore.NOT_SPECIFIED, characterIdx, Highscore.NOT_SPECIFIED));
-						}
-					}
+			Championship championship = (Championship) item;
+			if (filter.matchesVersion(championship.getVersion())) {
+				for (int characterIdx : getSelectedCharacters(championship, filter)) {
+					selectedHighscoreList.add(new Highscore(championship, Highscore.NOT_SPECIFIED, characterIdx, Highscore.NOT_SPECIFIED));
 				}
 			}
 		}
 		
-		Collections.sort(selectedHighscoreList);
-		m_selectedHighscores = selectedHighscoreList.toArray(new Highscore[selectedHighscoreList.size()]);
+		return selectedHighscoreList;
 	}
 	
-	public Highscore[] getHighscores(int limitToRank) {
-		m_highscoreSettings.setRankLimit(limitToRank);
-		return limitToRank < m_selectedHighscores.length && limitToRank != -1 ?
-				Arrays.copyOf(m_selectedHighscores, limitToRank) : m_selectedHighscores;
+	private static List<Integer> getSelectedCharacters(Championship championship, HighscoreFilter filter) {
+		List<Integer> characterIdxList = new ArrayList<>();
+		if (filter.getCharacterFilter() == null) {
+			for (int i = 0; i < 7; i++) {
+				if (filter.matchesPlayer(championship.getPlayer(i))) {
+					characterIdxList.add(i);
+				}
+			}
+		} else {
+			int characterIndex = championship.getCharacterIdx()[filter.getCharacterFilter().ordinal()];
+			if (filter.matchesPlayer(championship.getPlayer(characterIndex))) {
+				characterIdxList.add(characterIndex);
+			}
+		}
+		return characterIdxList;
 	}
 	
-	public String[] getColumnNames() {
-		if (m_highscoreSettings.getMode() == HighscoreMode.CHAMPIONSHIP) {
-			Level[] orderedLevels = m_highscoreSettings.getChampionshipLevelsOrdered();
-			return new String[] {
-					I18NLocale.getString(I18N.RANK),
-					I18NLocale.getString(I18N.DATE),
-					I18NLocale.getString(I18N.TIME),
-					orderedLevels[0].toString(), orderedLevels[1].toString(),
-					orderedLevels[2].toString(), orderedLevels[3].toString(),
-					I18NLocale.getString(I18N.POINTS),
-					I18NLocale.getString(I18N.CHARACTER),
-					I18NLocale.getString(I18N.PLAYER),
-					I18NLocale.getString(I18N.VERSION)
-			};
-		} else {
-			String[] columnNames = m_highscoreSettings.getRoundsFilter() != -1 ?
-					new String[] {
-							I18NLocale.getString(I18N.RANK),
-							I18NLocale.getString(I18N.DATE),
-							I18NLocale.getString(I18N.TIME),
-							I18NLocale.getString(I18N.ROUND),
-							I18NLocale.getString(I18N.CHARACTER),
-							I18NLocale.getString(I18N.PLAYER),
-							I18NLocale.getString(I18N.VERSION)
-					} :
-					new String[] {
-							I18NLocale.getString(I18N.RANK),
-							I18NLocale.getString(I18N.DATE),
-							I18NLocale.getString(I18N.TIME),
-							I18NLocale.getString(I18N.ROUND) + " 1",
-							I18NLocale.getString(I18N.ROUND) + " 2",
-							I18NLocale.getString(I18N.ROUND) + " 3",
-							I18NLocale.getString(I18N.CHARACTER),
-							I18NLocale.getString(I18N.PLAYER),
-							I18NLocale.getString(I18N.VERSION)
-					};
-			return columnNames;
+	/**
+	 * Selects the times of the characters in the races on the level of the query.
+	 */
+	private static List<Highscore> selectRaces(Championship championship, int[] races, int roundsFilter,
+			HighscoreFilter filter) {
+		List<Highscore> selectedHighscoreList = new ArrayList<>();
+		if (!filter.matchesVersion(championship.getVersion())) {
+			return selectedHighscoreList;
+		}
+		for (int characterIdx : getSelectedCharacters(championship, filter)) {
+			for (int race : races) {
+				selectedHighscoreList.addAll(Highscore.getHighscoresForRounds(
+						championship.getTrackTime(race, characterIdx), roundsFilter, race));
+			}
 		}
+		return selectedHighscoreList;
 	}
 	
-	public int[] getMaximumColumnWidths() {
-		if (m_highscoreSettings.getMode() == HighscoreMode.CHAMPIONSHIP) {
-			return new int[] {50, Integer.MAX_VALUE, 120, 80, 80, 80, 80, 50, Integer.MAX_VALUE, 115, 50};
-			
+	/**
+	 * Adds a newly saved phantom, championship or duel to the generated highscores
+	 * and inserts its highscores into a result without reading the other saved
+	 * files again.
+	 * 
+	 * @param result the previous result
+	 * @param savedItem the item that was saved
+	 * @return the new result with the inserted indices or {@code null} if the items
+	 *         of the result are not generated anymore and it must be executed again
+	 */
+	public synchronized HighscoreResult addSavedItem(HighscoreResult result, SettingsItem savedItem) {
+		HighscoreQuery query = result.getQuery();
+		HighscoreMode mode = query.getMode();
+		boolean isStored = mode == HighscoreMode.TIME_TRIAL || mode == HighscoreMode.CHAMPIONSHIP_TIMES;
+		if (!isStored && (m_generation == null || !m_generation.m_query.hasSameGenerator(query))) {
+			return null;
+		}
+		
+		List<HighscoreItem> items = getGeneratedItems(query, savedItem);
+		if (!isStored && !items.isEmpty()) {
+			// saved trials and championships are added to the track time store and the level index when they are saved
+			List<HighscoreItem> generatedItems = new ArrayList<>(m_generation.m_items);
+			generatedItems.addAll(items);
+			m_generation = new Generation(m_generation.m_query, generatedItems);
+		}
+		
+		HighscoreFilter filter = query.getFilter();
+		List<Highscore> newHighscores = new ArrayList<>();
+		for (HighscoreItem item : items) {
+			if (mode == HighscoreMode.CHAMPIONSHIP_TIMES) {
+				Championship championship = (Championship) item;
+				newHighscores.addAll(selectRaces(championship, ChampionshipLevelIndex.getRaces(championship, query.getLevel()),
+						query.getRoundsFilter(), filter));
+			} else {
+				newHighscores.addAll(selectHighscores(query, item, filter));
+			}
+		}
+		Collections.sort(newHighscores);
+		
+		// the new highscores are merged after the equal ones and cut off at the rank limit
+		Highscore[] previousHighscores = result.getHighscores();
+		int length = previousHighscores.length + newHighscores.size();
+		int rankLimit = query.getRankLimit();
+		if (rankLimit != -1) {
+			length = Math.min(length, rankLimit);
+		}
+		Highscore[] selectedHighscores = new Highscore[length];
+		int[] insertedIndices = new int[newHighscores.size()];
+		int insertedCount = 0;
+		int previousIdx = 0;
+		for (int i = 0; i < length; i++) {
+			if (insertedCount < newHighscores.size() && (previousIdx == previousHighscores.length
+					|| newHighscores.get(insertedCount).compareTo(previousHighscores[previousIdx]) < 0)) {
+				selectedHighscores[i] = newHighscores.get(insertedCount);
+				insertedIndices[insertedCount++] = i;
+			} else {
+				selectedHighscores[i] = previousHighscores[previousIdx++];
+			}
+		}
+		insertedIndices = Arrays.copyOf(insertedIndices, insertedCount);
+		
+		HighscoreResult newResult = new HighscoreResult(query, selectedHighscores, insertedIndices);
+		synchronized (m_cachedResults) {
+			m_cachedResults.put(query, newResult);
+		}
+		return newResult;
+	}
+	
+	/**
+	 * Returns the items of a saved phantom, championship or duel which are selected by a query.
+	 */
+	private static List<HighscoreItem> getGeneratedItems(HighscoreQuery query, SettingsItem savedItem) {
+		List<HighscoreItem> items = new ArrayList<>();
+		HighscoreMode mode = query.getMode();
+		if (mode == HighscoreMode.TIME_TRIAL && savedItem instanceof Phantom) {
+			items.add(((Phantom) savedItem).getTrackTime());
+		} else if (mode == HighscoreMode.DUEL && savedItem instanceof Duel) {
+			items.addAll(Arrays.asList(((Duel) savedItem).getTrackTimes()));
+		} else if ((mode == HighscoreMode.CHAMPIONSHIP_TIMES || mode == HighscoreMode.CHAMPIONSHIP)
+				&& savedItem instanceof Championship) {
+			items.add((Championship) savedItem);
+		}
+		items.removeIf(item -> !isGenerated(query, item));
+		return items;
+	}
+	
+	private static boolean isGenerated(HighscoreQuery query, HighscoreItem item) {
+		if (item instanceof TrackTime) {
+			TrackTime trackTime = (TrackTime) item;
+			return trackTime.getEngine() == query.getEngine()
+					&& trackTime.getLevel() == query.getLevel();
 		} else {
-			int[] maxColumnWidths = m_highscoreSettings.getRoundsFilter() != -1 ?
-					new int[] {50, Integer.MAX_VALUE, 200, 50, Integer.MAX_VALUE, 115, 50} :
-					new int[] {50, Integer.MAX_VALUE, 150, 120, 120, 120, Integer.MAX_VALUE, 115, 50};
-			return maxColumnWidths;
+			Championship championship = (Championship) item;
+			if (championship.getTrackTime(0, 0).getEngine() != query.getEngine()) {
+				return false;
+			}
+			Level[] levels = championship.getLevels();
+			if (query.getMode() == HighscoreMode.CHAMPIONSHIP_TIMES) {
+				return Arrays.asList(levels).contains(query.getLevel());
+			} else {
+				int[] orderedIdx = championship.getLevelsOrderIndices();
+				Level[] orderedLevels = query.getChampionshipLevelsOrdered();
+				for (int i = 0; i < orderedIdx.length; i++) {
+					if (levels[orderedIdx[i]] != orderedLevels[i]) {
+						return false;
+					}
+				}
+				return true;
+			}
 		}
 	}
 }
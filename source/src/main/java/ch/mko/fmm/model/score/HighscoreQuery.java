@@ -0,0 +1,127 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import main.java.ch.mko.fmm.model.enums.Engine;
+import main.java.ch.mko.fmm.model.enums.GameCharacter;
+import main.java.ch.mko.fmm.model.enums.Level;
+import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.model.score.HighscoreSettings.HighscoreMode;
+
+/**
+ * The generator and the filters of a highscore selection. A query does not
+ * change the {@link HighscoreSettings}, so it can be executed by a
+ * {@link HighscoreList} without writing the settings.
+ */
+public final class HighscoreQuery {
+
+	private final HighscoreMode m_mode;
+
+	private final String m_champName;
+
+	private final Level m_level;
+
+	private final Engine m_engine;
+
+	private final GameCharacter m_characterFilter;
+
+	private final int m_roundsFilter;
+
+	private final Player[] m_playerFilter;
+
+	private final Version m_versionFilter;
+
+	private final int m_rankLimit;
+
+	/**
+	 * @param champName the ordered levels of the championship, e.g. "01-02-03-04"
+	 * @param characterFilter the shown character or {@code null} for all characters
+	 * @param roundsFilter 0 for all rounds, -1 for the total time or the number of the round
+	 * @param playerFilter the shown players
+	 * @param versionFilter the shown version or {@code null} for all versions
+	 * @param rankLimit the number of shown highscores or -1 if all are shown
+	 */
+	public HighscoreQuery(HighscoreMode mode, String champName, Level level, Engine engine, GameCharacter characterFilter,
+			int roundsFilter, Player[] playerFilter, Version versionFilter, int rankLimit) {
+		m_mode = mode;
+		m_champName = champName;
+		m_level = level;
+		m_engine = engine;
+		m_characterFilter = characterFilter;
+		m_roundsFilter = roundsFilter;
+		m_playerFilter = playerFilter.clone();
+		m_versionFilter = versionFilter;
+		m_rankLimit = rankLimit;
+	}
+
+	public HighscoreMode getMode() {
+		return m_mode;
+	}
+
+	public String getChampName() {
+		return m_champName;
+	}
+
+	public Level[] getChampionshipLevelsOrdered() {
+		return Championship.getOrderedLevelsByName(m_champName);
+	}
+
+	public Level getLevel() {
+		return m_level;
+	}
+
+	public Engine getEngine() {
+		return m_engine;
+	}
+
+	public GameCharacter getCharacterFilter() {
+		return m_characterFilter;
+	}
+
+	public int getRoundsFilter() {
+		return m_roundsFilter;
+	}
+
+	public Player[] getPlayerFilter() {
+		return m_playerFilter.clone();
+	}
+
+	public Version getVersionFilter() {
+		return m_versionFilter;
+	}
+
+	public int getRankLimit() {
+		return m_rankLimit;
+	}
+
+	public HighscoreFilter getFilter() {
+		return new HighscoreFilter(m_characterFilter, m_playerFilter, m_versionFilter);
+	}
+
+	/**
+	 * Returns whether both queries select from the same saved files, so the
+	 * generated items of one query can be used for the other one.
+	 */
+	public boolean hasSameGenerator(HighscoreQuery other) {
+		return m_mode == other.m_mode && m_level == other.m_level && m_engine == other.m_engine
+				&& (m_mode != HighscoreMode.CHAMPIONSHIP || m_champName.equals(other.m_champName));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof HighscoreQuery)) {
+			return false;
+		}
+		HighscoreQuery other = (HighscoreQuery) obj;
+		return hasSameGenerator(other) && m_characterFilter == other.m_characterFilter
+				&& m_roundsFilter == other.m_roundsFilter && Arrays.equals(m_playerFilter, other.m_playerFilter)
+				&& m_versionFilter == other.m_versionFilter && m_rankLimit == other.m_rankLimit;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(m_mode, m_mode == HighscoreMode.CHAMPIONSHIP ? m_champName : null, m_level, m_engine,
+				m_characterFilter, m_roundsFilter, Arrays.hashCode(m_playerFilter), m_versionFilter, m_rankLimit);
+	}
+}
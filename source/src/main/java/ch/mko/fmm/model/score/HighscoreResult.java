@@ -0,0 +1,99 @@
+package main.java.ch.mko.fmm.model.score;
+
+import main.java.ch.mko.fmm.i18n.I18N;
+import main.java.ch.mko.fmm.i18n.I18NLocale;
+import main.java.ch.mko.fmm.model.enums.Level;
+import main.java.ch.mko.fmm.model.score.HighscoreSettings.HighscoreMode;
+
+/**
+ * The sorted highscores selected by a {@link HighscoreQuery}. A result is not
+ * changed anymore, a newly saved item creates a new result.
+ */
+public final class HighscoreResult {
+
+	private final HighscoreQuery m_query;
+
+	private final Highscore[] m_highscores;
+
+	private final int[] m_insertedIndices;
+
+	HighscoreResult(HighscoreQuery query, Highscore[] highscores, int[] insertedIndices) {
+		m_query = query;
+		m_highscores = highscores;
+		m_insertedIndices = insertedIndices;
+	}
+
+	public HighscoreQuery getQuery() {
+		return m_query;
+	}
+
+	public int size() {
+		return m_highscores.length;
+	}
+
+	public Highscore[] getHighscores() {
+		return m_highscores.clone();
+	}
+
+	/**
+	 * @return the ascending indices in this result of the highscores of a newly
+	 *         saved item, which were inserted into the previous result. The rows
+	 *         of the previous result after the last kept one were cut off by the
+	 *         rank limit.
+	 */
+	public int[] getInsertedIndices() {
+		return m_insertedIndices.clone();
+	}
+
+	public String[] getColumnNames() {
+		if (m_query.getMode() == HighscoreMode.CHAMPIONSHIP) {
+			Level[] orderedLevels = m_query.getChampionshipLevelsOrdered();
+			return new String[] {
+					I18NLocale.getString(I18N.RANK),
+					I18NLocale.getString(I18N.DATE),
+					I18NLocale.getString(I18N.TIME),
+					orderedLevels[0].toString(), orderedLevels[1].toString(),
+					orderedLevels[2].toString(), orderedLevels[3].toString(),
+					I18NLocale.getString(I18N.POINTS),
+					I18NLocale.getString(I18N.CHARACTER),
+					I18NLocale.getString(I18N.PLAYER),
+					I18NLocale.getString(I18N.VERSION)
+			};
+		} else {
+			String[] columnNames = m_query.getRoundsFilter() != -1 ?
+					new String[] {
+							I18NLocale.getString(I18N.RANK),
+							I18NLocale.getString(I18N.DATE),
+							I18NLocale.getString(I18N.TIME),
+							I18NLocale.getString(I18N.ROUND),
+							I18NLocale.getString(I18N.CHARACTER),
+							I18NLocale.getString(I18N.PLAYER),
+							I18NLocale.getString(I18N.VERSION)
+					} :
+					new String[] {
+							I18NLocale.getString(I18N.RANK),
+							I18NLocale.getString(I18N.DATE),
+							I18NLocale.getString(I18N.TIME),
+							I18NLocale.getString(I18N.ROUND) + " 1",
+							I18NLocale.getString(I18N.ROUND) + " 2",
+							I18NLocale.getString(I18N.ROUND) + " 3",
+							I18NLocale.getString(I18N.CHARACTER),
+							I18NLocale.getString(I18N.PLAYER),
+							I18NLocale.getString(I18N.VERSION)
+					};
+			return columnNames;
+		}
+	}
+
+	public int[] getMaximumColumnWidths() {
+		if (m_query.getMode() == HighscoreMode.CHAMPIONSHIP) {
+			return new int[] {50, Integer.MAX_VALUE, 120, 80, 80, 80, 80, 50, Integer.MAX_VALUE, 115, 50};
+
+		} else {
+			int[] maxColumnWidths = m_query.getRoundsFilter() != -1 ?
+					new int[] {50, Integer.MAX_VALUE, 200, 50, Integer.MAX_VALUE, 115, 50} :
+					new int[] {50, Integer.MAX_VALUE, 150, 120, 120, 120, Integer.MAX_VALUE, 115, 50};
+			return maxColumnWidths;
+		}
+	}
+}
@@ -1,12 +1,17 @@
 package main.java.ch.mko.fmm.model.score;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -14,6 +19,10 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import main.java.ch.mko.fmm.MainFrame;
@@ -22,18 +31,57 @@ import main.java.ch.mko.fmm.model.enums.Engine;
 import main.java.ch.mko.fmm.model.enums.GameCharacter;
 import main.java.ch.mko.fmm.model.enums.Level;
 import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
+import main.java.ch.mko.fmm.model.score.Player.PlayerType;
 import main.java.ch.mko.fmm.util.FileUtils;
 import main.java.ch.mko.fmm.views.CustomPhantom;
 
-public class HighscoreSettings implements Serializable {
+public class HighscoreSettings {
 
-	private static final long serialVersionUID = 7578371788716236315L;
-
-	private static final File SETTINGS_FILE = new File("data" + File.separator + "highscore_settings.ser");
-	
-	private static final File BACKUP_SETTINGS_FILE = new File("data" + File.separator + "highscore_settings_backup.ser");
+	private static final File SETTINGS_FILE = new File("data" + File.separator + "highscore_settings.dat");
+	
+	private static final File LEGACY_SETTINGS_FILE = new File("data" + File.separator + "highscore_settings.ser");
+	
+	private static final File BACKUP_SETTINGS_FILE = new File("data" + File.separator + "highscore_settings_backup.dat");
+	
+	private static final int SETTINGS_MAGIC = 0x4D484B53;
+	
+	private static final int SETTINGS_FORMAT = 1;
+	
+	private static final int TAG_END = 0;
+	private static final int TAG_AUTO_ADD_HIGHSCORES = 1;
+	private static final int TAG_SHOW_DETAILS_IN_TOOLTIPS = 2;
+	private static final int TAG_CURRENT_NAME = 3;
+	private static final int TAG_CURRENT_NAME_2 = 4;
+	private static final int TAG_LOCALE = 5;
+	private static final int TAG_MODE = 6;
+	private static final int TAG_PHANTOM_MODE = 7;
+	private static final int TAG_ONLY_CURRENT_VERSION = 8;
+	private static final int TAG_ONLY_CURRENT_CHARACTER = 9;
+	private static final int TAG_USE_CUSTOM_PHANTOMS = 10;
+	private static final int TAG_CUSTOM_PHANTOMS = 11;
+	private static final int TAG_LEVEL = 12;
+	private static final int TAG_CHAMPIONSHIP_LEVELS_ORDERED = 13;
+	private static final int TAG_ENGINE = 14;
+	private static final int TAG_CHARACTER_FILTER = 15;
+	private static final int TAG_ROUNDS_FILTER = 16;
+	private static final int TAG_VERSION_FILTER = 17;
+	private static final int TAG_RANK_LIMIT = 18;
+	private static final int TAG_PLAYER_FILTER = 19;
+	
+	private static final long SAVE_DELAY_MILLIS = 500;
+	
+	private static final ScheduledExecutorService SAVE_SERVICE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "highscore-settings-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private static final Object WRITE_LOCK = new Object();
 	
 	private static HighscoreSettings settings;
+	
+	private ScheduledFuture<?> m_pendingSave;
 
 	private boolean m_autoAddHighscores = true;
 	
@@ -101,88 +149,15 @@ public class HighscoreSettings implements Serializable {
 	private HighscoreSettings() {
 	}
 	
-	@SuppressWarnings("unchecked")
-	public static HighscoreSettings loadSettings() {
+	public static synchronized HighscoreSettings loadSettings() {
 		if (settings == null) {
 			settings = new HighscoreSettings();
+			Runtime.getRuntime().addShutdownHook(new Thread(HighscoreSettings::flushSettings, "highscore-settings-flush"));
 			if (SETTINGS_FILE.exists()) {
-				try {
-					ObjectInputStream in = new ObjectInputStream(new FileInputStream(SETTINGS_FILE));
-					while (in.available() > 0) {
-						String fieldName = in.readUTF();
-						try {
-							switch (fieldName) {
-							case "m_autoAddHighscores":
-								settings.m_autoAddHighscores = (Boolean) in.readObject();
-								break;
-							case "m_showDetailsInTooltips":
-								settings.m_showDetailsInTooltips = (Boolean) in.readObject();
-								break;
-							case "m_currentName":
-								settings.m_currentName = in.readUTF();
-								break;
-							case "m_currentName2":
-								settings.m_currentName2 = in.readUTF();
-								break;
-							case "m_locale":
-								settings.m_locale = (I18NLocale) in.readObject();
-								break;
-							case "m_mode":
-								settings.m_mode = (HighscoreMode) in.readObject();
-								break;
-							case "m_phantomMode":
-								settings.m_phantomMode = (PhantomMode) in.readObject();
-								break;
-							case "m_onlyCurrentVersion":
-								settings.m_onlyCurrentVersion = (Boolean) in.readObject();
-								break;
-							case "m_onlyCurrentCharacter":
-								settings.m_onlyCurrentCharacter = (Boolean) in.readObject();
-								break;
-							case "m_useCustomPhantoms":
-								settings.m_useCustomPhantoms = (Boolean) in.readObject();
-								break;
-							case "m_customPhantoms":
-								settings.m_customPhantoms = (List<CustomPhantom>) in.readObject();
-								break;
-							case "m_level":
-								settings.m_level = (Level) in.readObject();
-								break;
-							case "m_championshipLevelsOrdered":
-								settings.m_championshipLevelsOrdered = (Level[]) in.readObject();
-								break;
-							case "m_engine":
-								settings.m_engine = (Engine) in.readObject();
-								break;
-							case "m_characterFilter":
-								settings.m_characterFilter = (GameCharacter) in.readObject();
-								break;
-							case "m_roundsFilter":
-								settings.m_roundsFilter = (Integer) in.readObject();
-								break;
-							case "m_versionFilter":
-								settings.m_versionFilter = (Version) in.readObject();
-								break;
-							case "m_rankLimit":
-								settings.m_rankLimit = (Integer) in.readObject();
-								break;
-							case "m_playerFilter":
-								settings.m_playerFilter = (Player[]) in.readObject();
-								break;
-							default:
-								MainFrame.LOG_PANEL.warn("Could not find settings field " + fieldName);
-								createBackupAfterError();
-							}
-						} catch (Exception e) {
-							MainFrame.LOG_PANEL.error("Could not restore settings field " + fieldName + ": " + e.getMessage(), e);
-							createBackupAfterError();
-						}
-					}
-					in.close();
-				} catch (IOException e) {
-					MainFrame.LOG_PANEL.error("Could not restore settings: " + e.getMessage(), e);
-					createBackupAfterError();
-				}
+				settings.readSettings();
+			} else if (LEGACY_SETTINGS_FILE.exists()) {
+				settings.readLegacySettings();
+				MainFrame.LOG_PANEL.log("Migrated settings from " + LEGACY_SETTINGS_FILE.getPath() + " to " + SETTINGS_FILE.getPath() + ".");
 			}
 			settings.loadCustomPhantoms();
 			settings.saveSettings();
@@ -191,7 +166,45 @@ public class HighscoreSettings implements Serializable {
 		return settings;
 	}
 	
-	private static synchronized void createBackupAfterError() {
+	/**
+	 * Reads the settings file. Each field is stored with its tag and length, so
+	 * unknown or corrupt fields are skipped and keep their default value. The file
+	 * is copied as backup before it is written again with the default values.
+	 */
+	private void readSettings() {
+		boolean backupCreated = false;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(SETTINGS_FILE)))) {
+			if (in.readInt() != SETTINGS_MAGIC) {
+				throw new IOException("Unknown format of " + SETTINGS_FILE.getPath());
+			}
+			int format = in.readUnsignedByte();
+			if (format > SETTINGS_FORMAT) {
+				MainFrame.LOG_PANEL.warn("Settings were saved by a newer version, unknown fields are ignored.");
+			}
+			
+			int tag;
+			while ((tag = in.readUnsignedByte()) != TAG_END) {
+				byte[] value = new byte[in.readInt()];
+				in.readFully(value);
+				try {
+					readField(tag, new DataInputStream(new ByteArrayInputStream(value)));
+				} catch (IOException | RuntimeException e) {
+					MainFrame.LOG_PANEL.warn("Could not restore settings field " + tag + ", it is reset: " + e.getMessage());
+					if (!backupCreated) {
+						createBackupAfterError();
+						backupCreated = true;
+					}
+				}
+			}
+		} catch (IOException e) {
+			MainFrame.LOG_PANEL.error("Could not restore settings: " + e.getMessage(), e);
+			if (!backupCreated) {
+				createBackupAfterError();
+			}
+		}
+	}
+	
+	private static void createBackupAfterError() {
 		File backupDir = BACKUP_SETTINGS_FILE.getParentFile();
 		String backupName = FileUtils.getUniqueName(backupDir, BACKUP_SETTINGS_FILE.getName());
 		Path backupPath = Paths.get(backupDir.getPath(), backupName);
@@ -204,6 +217,173 @@ public class HighscoreSettings implements Serializable {
 		}
 	}
 	
+	private void readField(int tag, DataInput in) throws IOException {
+		switch (tag) {
+		case TAG_AUTO_ADD_HIGHSCORES:
+			m_autoAddHighscores = in.readBoolean();
+			break;
+		case TAG_SHOW_DETAILS_IN_TOOLTIPS:
+			m_showDetailsInTooltips = in.readBoolean();
+			break;
+		case TAG_CURRENT_NAME:
+			m_currentName = in.readUTF();
+			break;
+		case TAG_CURRENT_NAME_2:
+			m_currentName2 = in.readUTF();
+			break;
+		case TAG_LOCALE:
+			m_locale = I18NLocale.valueOf(in.readUTF());
+			break;
+		case TAG_MODE:
+			m_mode = HighscoreMode.valueOf(in.readUTF());
+			break;
+		case TAG_PHANTOM_MODE:
+			m_phantomMode = PhantomMode.valueOf(in.readUTF());
+			break;
+		case TAG_ONLY_CURRENT_VERSION:
+			m_onlyCurrentVersion = in.readBoolean();
+			break;
+		case TAG_ONLY_CURRENT_CHARACTER:
+			m_onlyCurrentCharacter = in.readBoolean();
+			break;
+		case TAG_USE_CUSTOM_PHANTOMS:
+			m_useCustomPhantoms = in.readBoolean();
+			break;
+		case TAG_CUSTOM_PHANTOMS:
+			List<CustomPhantom> customPhantoms = new ArrayList<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				customPhantoms.add(CustomPhantom.readSettings(in));
+			}
+			m_customPhantoms = customPhantoms;
+			break;
+		case TAG_LEVEL:
+			m_level = Level.valueOf(in.readUTF());
+			break;
+		case TAG_CHAMPIONSHIP_LEVELS_ORDERED:
+			Level[] levels = new Level[in.readUnsignedByte()];
+			for (int i = 0; i < levels.length; i++) {
+				levels[i] = Level.valueOf(in.readUTF());
+			}
+			m_championshipLevelsOrdered = levels;
+			break;
+		case TAG_ENGINE:
+			m_engine = Engine.valueOf(in.readUTF());
+			break;
+		case TAG_CHARACTER_FILTER:
+			m_characterFilter = in.readBoolean() ? GameCharacter.valueOf(in.readUTF()) : null;
+			break;
+		case TAG_ROUNDS_FILTER:
+			m_roundsFilter = in.readInt();
+			break;
+		case TAG_VERSION_FILTER:
+			m_versionFilter = in.readBoolean() ? Version.valueOf(in.readUTF()) : null;
+			break;
+		case TAG_RANK_LIMIT:
+			m_rankLimit = in.readInt();
+			break;
+		case TAG_PLAYER_FILTER:
+			Player[] players = new Player[in.readUnsignedByte()];
+			for (int i = 0; i < players.length; i++) {
+				String name = in.readBoolean() ? in.readUTF() : null;
+				PlayerType type = in.readBoolean() ? PlayerType.valueOf(in.readUTF()) : null;
+				PlayerOrigin origin = in.readBoolean() ? PlayerOrigin.valueOf(in.readUTF()) : null;
+				players[i] = new Player(name, type, origin);
+			}
+			m_playerFilter = canonicalPlayerFilter(players);
+			break;
+		default:
+			MainFrame.LOG_PANEL.warn("Could not find settings field " + tag);
+		}
+	}
+	
+	/**
+	 * Returns the same instance as the options, so the filter is recognized.
+	 */
+	private static Player[] canonicalPlayerFilter(Player[] players) {
+		return Player.OPTIONS.values().stream()
+				.filter(option -> Arrays.equals(option, players))
+				.findFirst()
+				.orElse(players);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void readLegacySettings() {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new FileInputStream(LEGACY_SETTINGS_FILE));
+			while (in.available() > 0) {
+				String fieldName = in.readUTF();
+				try {
+					switch (fieldName) {
+					case "m_autoAddHighscores":
+						m_autoAddHighscores = (Boolean) in.readObject();
+						break;
+					case "m_showDetailsInTooltips":
+						m_showDetailsInTooltips = (Boolean) in.readObject();
+						break;
+					case "m_currentName":
+						m_currentName = in.readUTF();
+						break;
+					case "m_currentName2":
+						m_currentName2 = in.readUTF();
+						break;
+					case "m_locale":
+						m_locale = (I18NLocale) in.readObject();
+						break;
+					case "m_mode":
+						m_mode = (HighscoreMode) in.readObject();
+						break;
+					case "m_phantomMode":
+						m_phantomMode = (PhantomMode) in.readObject();
+						break;
+					case "m_onlyCurrentVersion":
+						m_onlyCurrentVersion = (Boolean) in.readObject();
+						break;
+					case "m_onlyCurrentCharacter":
+						m_onlyCurrentCharacter = (Boolean) in.readObject();
+						break;
+					case "m_useCustomPhantoms":
+						m_useCustomPhantoms = (Boolean) in.readObject();
+						break;
+					case "m_customPhantoms":
+						m_customPhantoms = (List<CustomPhantom>) in.readObject();
+						break;
+					case "m_level":
+						m_level = (Level) in.readObject();
+						break;
+					case "m_championshipLevelsOrdered":
+						m_championshipLevelsOrdered = (Level[]) in.readObject();
+						break;
+					case "m_engine":
+						m_engine = (Engine) in.readObject();
+						break;
+					case "m_characterFilter":
+						m_characterFilter = (GameCharacter) in.readObject();
+						break;
+					case "m_roundsFilter":
+						m_roundsFilter = (Integer) in.readObject();
+						break;
+					case "m_versionFilter":
+						m_versionFilter = (Version) in.readObject();
+						break;
+					case "m_rankLimit":
+						m_rankLimit = (Integer) in.readObject();
+						break;
+					case "m_playerFilter":
+						m_playerFilter = (Player[]) in.readObject();
+						break;
+					default:
+						MainFrame.LOG_PANEL.warn("Could not find settings field " + fieldName);
+					}
+				} catch (Exception e) {
+					MainFrame.LOG_PANEL.error("Could not restore settings field " + fieldName + ": " + e.getMessage(), e);
+				}
+			}
+			in.close();
+		} catch (IOException e) {
+			MainFrame.LOG_PANEL.error("Could not restore settings: " + e.getMessage(), e);
+		}
+	}
+	
 	private void loadCustomPhantoms() {
 		for (CustomPhantom customPhantom : m_customPhantoms) {
 			try {
@@ -216,157 +396,275 @@ public class HighscoreSettings implements Serializable {
 		}
 	}
 
-	private void saveSettings() {
-		try {
-			if (!SETTINGS_FILE.exists()) {
-				Files.createFile(SETTINGS_FILE.toPath());
+	/**
+	 * Schedules the writing of the settings. All changes within {@link #SAVE_DELAY_MILLIS}
+	 * are written together in the background.
+	 */
+	private synchronized void saveSettings() {
+		if (m_pendingSave == null) {
+			m_pendingSave = SAVE_SERVICE.schedule(this::writeSettings, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Writes the pending changes of the settings immediately.
+	 */
+	public static void flushSettings() {
+		HighscoreSettings currentSettings;
+		synchronized (HighscoreSettings.class) {
+			currentSettings = settings;
+		}
+		if (currentSettings != null) {
+			ScheduledFuture<?> pendingSave;
+			synchronized (currentSettings) {
+				pendingSave = currentSettings.m_pendingSave;
+			}
+			if (pendingSave != null) {
+				pendingSave.cancel(false);
+				currentSettings.writeSettings();
 			}
-			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(SETTINGS_FILE));
-			out.writeUTF("m_autoAddHighscores");
-			out.writeObject(new Boolean(m_autoAddHighscores));
-			out.writeUTF("m_showDetailsInTooltips");
-			out.writeObject(new Boolean(m_showDetailsInTooltips));
-			out.writeUTF("m_currentName");
+		}
+	}
+	
+	private void writeSettings() {
+		synchronized (WRITE_LOCK) {
+			byte[] bytes;
+			synchronized (this) {
+				m_pendingSave = null;
+				try {
+					bytes = encodeSettings();
+				} catch (IOException ioe) {
+					ioe.printStackTrace();
+					MainFrame.LOG_PANEL.error("Error while saving settings: " + ioe.getMessage(), ioe);
+					return;
+				}
+			}
+			
+			File tempFile = new File(SETTINGS_FILE.getPath() + ".tmp");
+			try {
+				Files.write(tempFile.toPath(), bytes);
+				try {
+					Files.move(tempFile.toPath(), SETTINGS_FILE.toPath(),
+							StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tempFile.toPath(), SETTINGS_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+				
+			} catch (IOException ioe) {
+				ioe.printStackTrace();
+				MainFrame.LOG_PANEL.error("Error while saving settings: " + ioe.getMessage(), ioe);
+			}
+		}
+	}
+	
+	private byte[] encodeSettings() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(SETTINGS_MAGIC);
+		out.writeByte(SETTINGS_FORMAT);
+		
+		ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+		DataOutputStream value = new DataOutputStream(valueBytes);
+		for (int tag = TAG_AUTO_ADD_HIGHSCORES; tag <= TAG_PLAYER_FILTER; tag++) {
+			valueBytes.reset();
+			writeField(tag, value);
+			out.writeByte(tag);
+			out.writeInt(valueBytes.size());
+			valueBytes.writeTo(out);
+		}
+		out.writeByte(TAG_END);
+		return bytes.toByteArray();
+	}
+	
+	private void writeField(int tag, DataOutput out) throws IOException {
+		switch (tag) {
+		case TAG_AUTO_ADD_HIGHSCORES:
+			out.writeBoolean(m_autoAddHighscores);
+			break;
+		case TAG_SHOW_DETAILS_IN_TOOLTIPS:
+			out.writeBoolean(m_showDetailsInTooltips);
+			break;
+		case TAG_CURRENT_NAME:
 			out.writeUTF(m_currentName);
-			out.writeUTF("m_currentName2");
+			break;
+		case TAG_CURRENT_NAME_2:
 			out.writeUTF(m_currentName2);
-			out.writeUTF("m_locale");
-			out.writeObject(m_locale);
-			out.writeUTF("m_mode");
-			out.writeObject(m_mode);
-			out.writeUTF("m_phantomMode");
-			out.writeObject(m_phantomMode);
-			out.writeUTF("m_onlyCurrentVersion");
-			out.writeObject(new Boolean(m_onlyCurrentVersion));
-			out.writeUTF("m_onlyCurrentCharacter");
-			out.writeObject(new Boolean(m_onlyCurrentCharacter));
-			out.writeUTF("m_useCustomPhantoms");
-			out.writeObject(new Boolean(m_useCustomPhantoms));
-			out.writeUTF("m_customPhantoms");
-			out.writeObject(m_customPhantoms);
-			out.writeUTF("m_level");
-			out.writeObject(m_level);
-			out.writeUTF("m_championshipLevelsOrdered");
-			out.writeObject(m_championshipLevelsOrdered);
-			out.writeUTF("m_engine");
-			out.writeObject(m_engine);
-			out.writeUTF("m_characterFilter");
-			out.writeObject(m_characterFilter);
-			out.writeUTF("m_roundsFilter");
-			out.writeObject(new Integer(m_roundsFilter));
-			out.writeUTF("m_versionFilter");
-			out.writeObject(m_versionFilter);
-			out.writeUTF("m_rankLimit");
-			out.writeObject(new Integer(m_rankLimit));
-			out.writeUTF("m_playerFilter");
-			out.writeObject(m_playerFilter);
-			out.close();
-			
-		} catch (IOException ioe) {
-			ioe.printStackTrace();
-			MainFrame.LOG_PANEL.error("Error while saving settings: " + ioe.getMessage(), ioe);
+			break;
+		case TAG_LOCALE:
+			out.writeUTF(m_locale.name());
+			break;
+		case TAG_MODE:
+			out.writeUTF(m_mode.name());
+			break;
+		case TAG_PHANTOM_MODE:
+			out.writeUTF(m_phantomMode.name());
+			break;
+		case TAG_ONLY_CURRENT_VERSION:
+			out.writeBoolean(m_onlyCurrentVersion);
+			break;
+		case TAG_ONLY_CURRENT_CHARACTER:
+			out.writeBoolean(m_onlyCurrentCharacter);
+			break;
+		case TAG_USE_CUSTOM_PHANTOMS:
+			out.writeBoolean(m_useCustomPhantoms);
+			break;
+		case TAG_CUSTOM_PHANTOMS:
+			out.writeInt(m_customPhantoms.size());
+			for (CustomPhantom customPhantom : m_customPhantoms) {
+				customPhantom.writeSettings(out);
+			}
+			break;
+		case TAG_LEVEL:
+			out.writeUTF(m_level.name());
+			break;
+		case TAG_CHAMPIONSHIP_LEVELS_ORDERED:
+			out.writeByte(m_championshipLevelsOrdered.length);
+			for (Level level : m_championshipLevelsOrdered) {
+				out.writeUTF(level.name());
+			}
+			break;
+		case TAG_ENGINE:
+			out.writeUTF(m_engine.name());
+			break;
+		case TAG_CHARACTER_FILTER:
+			writeOptionalName(out, m_characterFilter);
+			break;
+		case TAG_ROUNDS_FILTER:
+			out.writeInt(m_roundsFilter);
+			break;
+		case TAG_VERSION_FILTER:
+			writeOptionalName(out, m_versionFilter);
+			break;
+		case TAG_RANK_LIMIT:
+			out.writeInt(m_rankLimit);
+			break;
+		case TAG_PLAYER_FILTER:
+			out.writeByte(m_playerFilter.length);
+			for (Player player : m_playerFilter) {
+				out.writeBoolean(player.getPlayerName() != null);
+				if (player.getPlayerName() != null) {
+					out.writeUTF(player.getPlayerName());
+				}
+				writeOptionalName(out, player.getPlayerType());
+				writeOptionalName(out, player.getPlayerOrigin());
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown settings field " + tag);
+		}
+	}
+	
+	private static void writeOptionalName(DataOutput out, Enum<?> value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value.name());
 		}
 	}
 	
-	public boolean isAutoAddHighscores() {
+	public synchronized boolean isAutoAddHighscores() {
 		return m_autoAddHighscores;
 	}
 	
-	public void setAutoAddHighscores(boolean autoAddHighscores) {
+	public synchronized void setAutoAddHighscores(boolean autoAddHighscores) {
 		m_autoAddHighscores = autoAddHighscores;
 		saveSettings();
 	}
 	
-	public boolean isShowDetailsInTooltips() {
+	public synchronized boolean isShowDetailsInTooltips() {
 		return m_showDetailsInTooltips;
 	}
 	
-	public void setShowDetailsInTooltips(boolean showDetailsInTooltips) {
+	public synchronized void setShowDetailsInTooltips(boolean showDetailsInTooltips) {
 		m_showDetailsInTooltips = showDetailsInTooltips;
 		saveSettings();
 	}
 	
-	public String getCurrentName() {
+	public synchronized String getCurrentName() {
 		return m_currentName;
 	}
 	
-	public void setCurrentName(String currentName) {
+	public synchronized void setCurrentName(String currentName) {
 		m_currentName = currentName;
 		saveSettings();
 	}
 	
-	public String getCurrentName2() {
+	public synchronized String getCurrentName2() {
 		return m_currentName2;
 	}
 	
-	public void setCurrentName2(String currentName2) {
+	public synchronized void setCurrentName2(String currentName2) {
 		m_currentName2 = currentName2;
 		saveSettings();
 	}
 	
-	public I18NLocale getLocale() {
+	public synchronized I18NLocale getLocale() {
 		return m_locale;
 	}
 	
 	public void setLocale(I18NLocale locale) {
-		m_locale = locale;
+		synchronized (this) {
+			m_locale = locale;
+			saveSettings();
+		}
 		I18NLocale.updateLocale();
-		saveSettings();
 	}
 	
-	public HighscoreMode getMode() {
+	public synchronized HighscoreMode getMode() {
 		return m_mode;
 	}
 	
-	public PhantomMode getPhantomMode() {
+	public synchronized PhantomMode getPhantomMode() {
 		return m_phantomMode;
 	}
 	
-	public void setPhantomMode(PhantomMode phantomMode) {
+	public synchronized void setPhantomMode(PhantomMode phantomMode) {
 		m_phantomMode = phantomMode;
 		saveSettings();
 	}
 
-	public boolean isOnlyCurrentVersion() {
+	public synchronized boolean isOnlyCurrentVersion() {
 		return m_onlyCurrentVersion;
 	}
 
-	public void setOnlyCurrentVersion(boolean onlyCurrentVersion) {
+	public synchronized void setOnlyCurrentVersion(boolean onlyCurrentVersion) {
 		m_onlyCurrentVersion = onlyCurrentVersion;
 		saveSettings();
 	}
 
-	public boolean isOnlyCurrentCharacter() {
+	public synchronized boolean isOnlyCurrentCharacter() {
 		return m_onlyCurrentCharacter;
 	}
 
-	public void setOnlyCurrentCharacter(boolean onlyCurrentCharacter) {
+	public synchronized void setOnlyCurrentCharacter(boolean onlyCurrentCharacter) {
 		m_onlyCurrentCharacter = onlyCurrentCharacter;
 		saveSettings();
 	}
 
-	public boolean isUseCustomPhantoms() {
+	public synchronized boolean isUseCustomPhantoms() {
 		return m_useCustomPhantoms;
 	}
 
-	public void setUseCustomPhantoms(boolean useCustomPhantoms) {
+	public synchronized void setUseCustomPhantoms(boolean useCustomPhantoms) {
 		m_useCustomPhantoms = useCustomPhantoms;
 		saveSettings();
 	}
 	
-	public List<CustomPhantom> getCustomPhantoms() {
+	public synchronized List<CustomPhantom> getCustomPhantoms() {
 		return m_customPhantoms.stream()
 				.map(cp -> cp.clone())
 				.collect(Collectors.toList());
 	}
 	
 	public void setCustomPhantoms(List<CustomPhantom> customPhantoms) {
-		m_customPhantoms = customPhantoms.stream()
+		List<CustomPhantom> newCustomPhantoms = customPhantoms.stream()
 				.map(cp -> cp.clone())
 				.collect(Collectors.toList());
-		saveSettings();
+		synchronized (this) {
+			m_customPhantoms = newCustomPhantoms;
+			saveSettings();
+		}
 		for (File customPhantomFile : new File(Phantom.CUSTOM_DIR).listFiles()) {
-			if (!m_customPhantoms.stream()
+			if (!newCustomPhantoms.stream()
 					.anyMatch(cp -> new File(cp.getInputFilePath()).getName().equals(customPhantomFile.getName()))) {
 				try {
 					Files.delete(customPhantomFile.toPath());
@@ -379,63 +677,59 @@ public class HighscoreSettings implements Serializable {
 		}
 	}
 
-	public Level getLevel() {
+	public synchronized Level getLevel() {
 		return m_level;
 	}
 
-	public Level[] getChampionshipLevelsOrdered() {
+	public synchronized Level[] getChampionshipLevelsOrdered() {
 		return m_championshipLevelsOrdered;
 	}
 
-	public Engine getEngine() {
+	public synchronized Engine getEngine() {
 		return m_engine;
 	}
 
-	public GameCharacter getCharacterFilter() {
+	public synchronized GameCharacter getCharacterFilter() {
 		return m_characterFilter;
 	}
 
-	public int getRoundsFilter() {
+	public synchronized int getRoundsFilter() {
 		return m_roundsFilter;
 	}
 	
-	public Player[] getPlayerFilter() {
+	public synchronized Player[] getPlayerFilter() {
 		return m_playerFilter;
 	}
 	
-	public Version getVersionFilter() {
+	public synchronized Version getVersionFilter() {
 		return m_versionFilter;
 	}
 	
-	public int getRankLimit() {
+	public synchronized int getRankLimit() {
 		return m_rankLimit;
 	}
 	
-	public void setRankLimit(int rankLimit) {
-		if (m_rankLimit != rankLimit) {
-			m_rankLimit = rankLimit;
-			saveSettings();
-		}
-	}
-
-	public void setGenerator(HighscoreMode mode, Level level, Level[] championshipLevelsOrdered, Engine engine) {
-		if (m_mode != mode || m_level != level || m_engine != engine
-				|| !Arrays.deepEquals(m_championshipLevelsOrdered, championshipLevelsOrdered)) {
-			m_mode = mode;
-			m_level = level;
+	/**
+	 * Stores the generator, the filters and the rank limit of the shown highscores.
+	 * The settings are only written if one of them changed.
+	 */
+	public synchronized void setQuery(HighscoreQuery query) {
+		Level[] championshipLevelsOrdered = query.getChampionshipLevelsOrdered();
+		Player[] playerFilter = canonicalPlayerFilter(query.getPlayerFilter());
+		if (m_mode != query.getMode() || m_level != query.getLevel() || m_engine != query.getEngine()
+				|| !Arrays.deepEquals(m_championshipLevelsOrdered, championshipLevelsOrdered)
+				|| m_characterFilter != query.getCharacterFilter() || m_roundsFilter != query.getRoundsFilter()
+				|| !Arrays.equals(m_playerFilter, playerFilter) || m_versionFilter != query.getVersionFilter()
+				|| m_rankLimit != query.getRankLimit()) {
+			m_mode = query.getMode();
+			m_level = query.getLevel();
 			m_championshipLevelsOrdered = championshipLevelsOrdered;
-			m_engine = engine;
-			saveSettings();
-		}
-	}
-	
-	public void setFilter(GameCharacter characterFilter, int roundsFilter, Player[] playerFilter, Version versionFilter) {
-		if (m_characterFilter != characterFilter || m_roundsFilter != roundsFilter
-				|| m_playerFilter != playerFilter || m_versionFilter != versionFilter) {
-			m_characterFilter = characterFilter;
-			m_roundsFilter = roundsFilter;
+			m_engine = query.getEngine();
+			m_characterFilter = query.getCharacterFilter();
+			m_roundsFilter = query.getRoundsFilter();
 			m_playerFilter = playerFilter;
-			m_versionFilter = versionFilter;
+			m_versionFilter = query.getVersionFilter();
+			m_rankLimit = query.getRankLimit();
 			saveSettings();
 		}
 	}
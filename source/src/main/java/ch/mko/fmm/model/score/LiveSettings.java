@@ -0,0 +1,70 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The live view of the current character in the settings file of the game.
+ * While the {@link main.java.ch.mko.fmm.SettingsUpdateChecker} watches the
+ * settings file, the character is updated by its {@link Settings} and read from
+ * memory. Otherwise only the beginning of the file is read again after it was modified.
+ */
+public class LiveSettings {
+
+	private static final int CHARACTER_OFFSET = 84;
+
+	private static final File SETTINGS_FILE = new File(Settings.SETTINGS_PATH);
+
+	private static volatile int currentCharacter;
+
+	private static volatile long lastModified = Long.MIN_VALUE;
+
+	private static volatile boolean isWatched;
+
+	private LiveSettings() {
+	}
+
+	public static int getCurrentCharacter() throws IOException {
+		refresh();
+		return currentCharacter;
+	}
+
+	/**
+	 * @param watched {@code true} if every change of the settings file is passed to {@link #update(byte[], long)}
+	 */
+	public static synchronized void setWatched(boolean watched) {
+		// the file may have changed before it was watched
+		lastModified = Long.MIN_VALUE;
+		isWatched = watched;
+	}
+
+	static synchronized void update(byte[] content, long newLastModified) {
+		currentCharacter = content[CHARACTER_OFFSET];
+		lastModified = newLastModified;
+	}
+
+	private static synchronized void refresh() throws IOException {
+		long newLastModified = SETTINGS_FILE.lastModified();
+		if ((isWatched && lastModified != Long.MIN_VALUE) || newLastModified == lastModified) {
+			return;
+		}
+
+		if (!SETTINGS_FILE.isFile()) {
+			update(new byte[CHARACTER_OFFSET + 1], newLastModified);
+			return;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(CHARACTER_OFFSET + 1);
+		try (FileChannel channel = FileChannel.open(SETTINGS_FILE.toPath(), StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, buffer.position()) < 0) {
+					return;
+				}
+			}
+		}
+		update(buffer.array(), newLastModified);
+	}
+}
@@ -1,15 +1,18 @@
 package main.java.ch.mko.fmm.model.score;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
-import crc.CRC96;
 import main.java.ch.mko.fmm.Application;
 import main.java.ch.mko.fmm.i18n.I18N;
 import main.java.ch.mko.fmm.i18n.I18NLocale;
@@ -17,6 +20,7 @@ import main.java.ch.mko.fmm.model.enums.Version;
 import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
 import main.java.ch.mko.fmm.model.score.Player.PlayerType;
 import main.java.ch.mko.fmm.util.FileUtils;
+import main.java.ch.mko.fmm.util.StreamingCRC96;
 
 public class Phantom extends SettingsItem {
 
@@ -37,6 +41,35 @@ public class Phantom extends SettingsItem {
 		setInputFilePath(inputFilePath);
 	}
 	
+	private Phantom(String inputFilePath, DataInput in) throws IOException {
+		m_trackTime = new TrackTime(this);
+		m_inputFilePath = inputFilePath;
+		m_trackTime.readInfos(in);
+	}
+	
+	static Phantom fromIndex(String inputFilePath, DataInput in, boolean valid) throws IOException {
+		Phantom phantom = new Phantom(inputFilePath, in);
+		phantom.setKnownValidity(valid);
+		return phantom;
+	}
+	
+	/**
+	 * Creates a valid phantom of a row of the {@link TrackTimeStore} without reading the file.
+	 */
+	static Phantom fromStore(String inputFilePath, String version, int level, int engine, int character,
+			float time, float[] rounds, long lastModified, Player player) {
+		Phantom phantom = new Phantom(inputFilePath, version, level, engine, character, time, rounds, lastModified, player);
+		phantom.setKnownValidity(true);
+		return phantom;
+	}
+	
+	private Phantom(String inputFilePath, String version, int level, int engine, int character,
+			float time, float[] rounds, long lastModified, Player player) {
+		m_trackTime = new TrackTime(this);
+		m_inputFilePath = inputFilePath;
+		m_trackTime.updateInfos(version, level, engine, character, time, rounds, lastModified, player);
+	}
+	
 	public static boolean isValidPhantomFile(String path) {
 		return new File(path).isFile() && path.endsWith(".mhk2");
 	}
@@ -73,9 +106,29 @@ public class Phantom extends SettingsItem {
 		return m_trackTime.getLastModified();
 	}
 	
+	private byte[] getContent() {
+		if (m_content == null) {
+			try {
+				m_content = Files.readAllBytes(Paths.get(m_inputFilePath));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return m_content;
+	}
+	
 	public boolean hasTimeChanged(byte[] content) {
 		if (m_content != null && content != null) {
-			return !Arrays.equals(Arrays.copyOfRange(m_content, 88, 104), Arrays.copyOfRange(content, 88, 104));
+			// the missing bytes of a shorter content are compared as 0
+			int length = Math.min(PhantomHeader.HEADER_LENGTH, Math.max(m_content.length, content.length));
+			for (int i = 88; i < length; i++) {
+				byte b1 = i < m_content.length ? m_content[i] : 0;
+				byte b2 = i < content.length ? content[i] : 0;
+				if (b1 != b2) {
+					return true;
+				}
+			}
+			return false;
 		} else {
 			return m_content != content;
 		}
@@ -99,30 +152,56 @@ public class Phantom extends SettingsItem {
 			}
 			
 			m_content = content;
-
-			String version = new String(Arrays.copyOfRange(m_content, 0, 4));
-			String name = new String(Arrays.copyOfRange(m_content, 8, 20)).trim();
-			int level = m_content[76] - 1;
-			int engine = m_content[80];
-			int character = m_content[84];
-			
-			float time = ByteBuffer.wrap(Arrays.copyOfRange(m_content, 88, 92)).order(ByteOrder.LITTLE_ENDIAN).getFloat();
-			float[] rounds = new float[3];
-			for (int i = 0; i < rounds.length; i++) {
-				rounds[i] = ByteBuffer.wrap(Arrays.copyOfRange(m_content, 92+4*i, 96+4*i)).order(ByteOrder.LITTLE_ENDIAN).getFloat();
-			}
-			
-			String containingFolder = new File(m_inputFilePath).getAbsoluteFile().getParent();
-			PlayerOrigin playerOrigin = new File(SOURCE_DIR).getAbsolutePath().equals(containingFolder) ? PlayerOrigin.SOURCE :
-				new File(CUSTOM_DIR).getAbsolutePath().equals(containingFolder) ? PlayerOrigin.CUSTOM : PlayerOrigin.LOCAL;
-			PlayerType playerType = playerOrigin == PlayerOrigin.SOURCE ? PlayerType.PC : PlayerType.PLAYER_1;
-			Player player = new Player(name, playerType, playerOrigin);
-			m_trackTime.updateInfos(version, level, engine, character, time, rounds, newLastModified, player);
+			infosChanged();
+			updateTrackTime(new PhantomHeader(m_content), newLastModified);
 		}
 		
 		return changed;
 	}
 	
+	/**
+	 * Reads only the header of a phantom file. The rest of the content is
+	 * read as soon as it is needed.
+	 * 
+	 * @param inputFilePath the path of the phantom file
+	 * @param header the reused header buffer
+	 * @return the phantom
+	 * @throws IOException if the phantom cannot be read
+	 */
+	static Phantom readHeader(String inputFilePath, PhantomHeader header) throws IOException {
+		if (!isValidPhantomFile(inputFilePath)) {
+			throw new IOException("Invalid phantom path " + inputFilePath + "!");
+		}
+		
+		File file = new File(inputFilePath);
+		long lastModified = file.lastModified();
+		boolean complete;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			complete = header.read(channel);
+		}
+		if (!complete) {
+			return new Phantom(inputFilePath);
+		}
+		
+		return new Phantom(inputFilePath, header, lastModified);
+	}
+	
+	private Phantom(String inputFilePath, PhantomHeader header, long lastModified) {
+		m_trackTime = new TrackTime(this);
+		m_inputFilePath = inputFilePath;
+		updateTrackTime(header, lastModified);
+	}
+	
+	private void updateTrackTime(PhantomHeader header, long lastModified) {
+		String containingFolder = new File(m_inputFilePath).getAbsoluteFile().getParent();
+		PlayerOrigin playerOrigin = new File(SOURCE_DIR).getAbsolutePath().equals(containingFolder) ? PlayerOrigin.SOURCE :
+			new File(CUSTOM_DIR).getAbsolutePath().equals(containingFolder) ? PlayerOrigin.CUSTOM : PlayerOrigin.LOCAL;
+		PlayerType playerType = playerOrigin == PlayerOrigin.SOURCE ? PlayerType.PC : PlayerType.PLAYER_1;
+		Player player = new Player(header.getName(), playerType, playerOrigin);
+		m_trackTime.updateInfos(header.getVersion(), header.getLevel(), header.getEngine(), header.getCharacter(),
+				header.getTime(), header.getRounds(), lastModified, player);
+	}
+	
 	public String getDefaultName() {
 		return m_trackTime.getDefaultName("phantom");
 	}
@@ -167,41 +246,90 @@ public class Phantom extends SettingsItem {
 					+ "wasn't opened by the \"" + I18NLocale.getString(I18N.OPEN_GAME) + "\" button!");
 		}
 		
+		byte[] content = getContent();
 		byte[] versionContent = gameVersion.getName().getBytes();
 		for (int i = 0; i < 4; i++) {
-			m_content[i] = versionContent[i];
+			content[i] = versionContent[i];
 		}
 		
 		String currentName = HighscoreSettings.loadSettings().getCurrentName();
 		byte[] currentNameContent = currentName.getBytes();
 		for (int i = 0; i < 12; i++) {
-			m_content[8+i] = i < currentNameContent.length ? currentNameContent[i] : 0;
+			content[8+i] = i < currentNameContent.length ? currentNameContent[i] : 0;
 		}
 		
 		Path sourcePath = Paths.get(SOURCE_DIR, getDefaultName() + ".mhk2");
 		byte[] sourceContent = Files.readAllBytes(sourcePath);
 		for (int i = 40; i < 72; i++) {
-			m_content[i] = sourceContent[i];
+			content[i] = sourceContent[i];
 		}
 
 		byte[] hashBytes = getHashBytes();
 		for (int i = 0; i < 12; i++) {
-			m_content[20+i] = hashBytes[i];
+			content[20+i] = hashBytes[i];
 		}
 		
-		Files.write(Paths.get(outputPath), m_content);
+		infosChanged();
+		Files.write(Paths.get(outputPath), content);
 	}
 	
 	@Override
-	protected byte[] getHashBytes() {
-		byte[] part1 = Arrays.copyOfRange(m_content, 0, 20);
-		byte[] part2 = Arrays.copyOfRange(m_content, 32, m_content.length);
-		return CRC96.fromBytes2(part1, part2).getValue();
+	protected void updateHash(StreamingCRC96 crc) {
+		if (m_content != null) {
+			crc.updateFirstPart(m_content, 0, 20);
+			crc.update(m_content, 32, m_content.length - 32);
+		} else {
+			try (FileChannel channel = FileChannel.open(Paths.get(m_inputFilePath), StandardOpenOption.READ)) {
+				crc.updateFirstPart(channel, 0, 20);
+				crc.update(channel, 32, channel.size() - 32);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 	}
 
 	@Override
 	protected byte[] getHashBytesContent() {
-		return Arrays.copyOfRange(m_content, 20, 32);
+		if (m_content != null) {
+			return Arrays.copyOfRange(m_content, 20, 32);
+		}
+		
+		try {
+			return readHashBytesContent(Paths.get(m_inputFilePath));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Reads only the hash which is stored in the phantom file.
+	 * 
+	 * @param path the phantom file
+	 * @return the bytes 20 to 32 of the file
+	 * @throws IOException if the file cannot be read or is too short
+	 */
+	public static byte[] readHashBytesContent(Path path) throws IOException {
+		ByteBuffer hashBytes = ByteBuffer.allocate(12);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (hashBytes.hasRemaining()) {
+				if (channel.read(hashBytes, 20 + hashBytes.position()) < 0) {
+					throw new IOException("Phantom " + path + " is too short!");
+				}
+			}
+		}
+		return hashBytes.array();
+	}
+	
+	/**
+	 * @return the hash which is stored in the content of the phantom
+	 */
+	public byte[] getStoredHash() {
+		return getHashBytesContent();
+	}
+	
+	@Override
+	protected void writeIndex(DataOutput out) throws IOException {
+		m_trackTime.writeInfos(out);
 	}
 	
 	public boolean contentEquals(Phantom other) {
@@ -209,14 +337,18 @@ public class Phantom extends SettingsItem {
 	}
 	
 	@Override
-	public String getTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
+	protected String createTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
 		String tableStyle = "style=\"border: 1px solid black\"";
 		String tdStyle = "style=\"border-bottom: 1px solid black\"";
 		String[] boldRows = new String[] { roundIdx != -1 ? I18N.ROUNDS.name() + (roundIdx+1) : I18N.TIME.name() };
-		return "<html>" + TrackTime.getDateTimeString(getLastModified()) + " - " + getPhantomRelativePath()
-				+ (showDetails ? "<br/><br/>"
-				+ "<table><tr><td>" + I18NLocale.getString(I18N.PLAYER) + " " + m_trackTime.getPlayer() + ":</td></tr><tr><td>"
-				+ m_trackTime.getInfoTable(tableStyle, tdStyle, boldRows, null)
-				+ "</td></tr></table>" : "") + "</html>";
+		StringBuilder sb = new StringBuilder("<html>").append(TrackTime.getDateTimeString(getLastModified()))
+				.append(" - ").append(getPhantomRelativePath());
+		if (showDetails) {
+			sb.append("<br/><br/><table><tr><td>").append(I18NLocale.getString(I18N.PLAYER)).append(' ')
+					.append(m_trackTime.getPlayer()).append(":</td></tr><tr><td>");
+			m_trackTime.appendInfoTable(sb, tableStyle, tdStyle, boldRows, null);
+			sb.append("</td></tr></table>");
+		}
+		return sb.append("</html>").toString();
 	}
 }
@@ -0,0 +1,138 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The decoder for the fixed header of a phantom file (bytes 0 to 104).
+ * All values are read with absolute little-endian gets, so no copies of
+ * the content are needed. An instance that reads from a {@link FileChannel}
+ * reuses its buffer for each file.
+ */
+public class PhantomHeader {
+
+	public static final int HEADER_LENGTH = 104;
+
+	private static final int VERSION_OFFSET = 0;
+
+	private static final int VERSION_LENGTH = 4;
+
+	private static final int NAME_OFFSET = 8;
+
+	private static final int NAME_LENGTH = 12;
+
+	private static final int LEVEL_OFFSET = 76;
+
+	private static final int ENGINE_OFFSET = 80;
+
+	private static final int CHARACTER_OFFSET = 84;
+
+	private static final int TIME_OFFSET = 88;
+
+	private static final int ROUNDS_OFFSET = 92;
+
+	private ByteBuffer m_buffer;
+
+	private ByteBuffer m_readBuffer;
+
+	private final byte[] m_stringBytes = new byte[NAME_LENGTH];
+
+	/**
+	 * Creates a header with its own buffer to be used with {@link #read(FileChannel)}.
+	 */
+	public PhantomHeader() {
+		m_readBuffer = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		m_buffer = m_readBuffer;
+	}
+
+	/**
+	 * Creates a header that reads from the given buffer, e.g. a
+	 * {@link java.nio.MappedByteBuffer} of a phantom file.
+	 *
+	 * @param buffer the buffer that starts with the header
+	 */
+	public PhantomHeader(ByteBuffer buffer) {
+		m_buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Creates a header that reads from the content without copying it.
+	 *
+	 * @param content the content of a phantom file
+	 */
+	public PhantomHeader(byte[] content) {
+		this(ByteBuffer.wrap(content));
+	}
+
+	/**
+	 * Reads only the header of a phantom file into the reused buffer.
+	 *
+	 * @param channel the channel of the phantom file
+	 * @return {@code true} if the whole header could be read
+	 * @throws IOException if the file cannot be read
+	 */
+	public boolean read(FileChannel channel) throws IOException {
+		if (m_readBuffer == null) {
+			m_readBuffer = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		m_buffer = m_readBuffer;
+		m_buffer.clear();
+		long position = 0;
+		while (m_buffer.hasRemaining()) {
+			int read = channel.read(m_buffer, position);
+			if (read < 0) {
+				return false;
+			}
+			position += read;
+		}
+		return true;
+	}
+
+	public String getVersion() {
+		return getString(VERSION_OFFSET, VERSION_LENGTH);
+	}
+
+	public String getName() {
+		return getString(NAME_OFFSET, NAME_LENGTH).trim();
+	}
+
+	public int getLevel() {
+		return m_buffer.get(LEVEL_OFFSET) - 1;
+	}
+
+	public int getEngine() {
+		return m_buffer.get(ENGINE_OFFSET);
+	}
+
+	public int getCharacter() {
+		return m_buffer.get(CHARACTER_OFFSET);
+	}
+
+	public float getTime() {
+		return m_buffer.getFloat(TIME_OFFSET);
+	}
+
+	public float getRound(int round) {
+		return m_buffer.getFloat(ROUNDS_OFFSET + 4*round);
+	}
+
+	public float[] getRounds() {
+		float[] rounds = new float[3];
+		for (int i = 0; i < rounds.length; i++) {
+			rounds[i] = getRound(i);
+		}
+		return rounds;
+	}
+
+	private String getString(int offset, int length) {
+		if (m_buffer.hasArray()) {
+			return new String(m_buffer.array(), m_buffer.arrayOffset() + offset, length);
+		}
+		for (int i = 0; i < length; i++) {
+			m_stringBytes[i] = m_buffer.get(offset + i);
+		}
+		return new String(m_stringBytes, 0, length);
+	}
+}
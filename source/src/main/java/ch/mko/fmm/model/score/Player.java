@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Objects;
 
 import main.java.ch.mko.fmm.i18n.I18N;
 import main.java.ch.mko.fmm.i18n.I18NLocale;
@@ -99,6 +100,11 @@ public class Player implements Serializable {
 		boolean namesEqual = m_playerName != null ? m_playerName.equals(other.getPlayerName()) : other.getPlayerName() == null;
 		return namesEqual && other.getPlayerType() == m_playerType;
 	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(m_playerName, m_playerType);
+	}
 	
 	@Override
 	public String toString() {
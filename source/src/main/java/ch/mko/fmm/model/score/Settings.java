@@ -72,6 +72,17 @@ public class Settings {
 		}
 	}
 	
+	/**
+	 * Creates the settings of a saved file without reading it. Used for items
+	 * that are restored from the {@link HighscoreIndex}.
+	 * 
+	 * @param inputFilePath the path of the saved file
+	 */
+	Settings(String inputFilePath) {
+		m_inputFilePath = inputFilePath;
+		m_isDefaultSettingsFile = false;
+	}
+	
 	public static boolean isValidSettingsFile(String path) {
 		return (path.equals(SETTINGS_PATH) || new File(path).exists()) && path.endsWith(".dat");
 	}
@@ -136,6 +147,9 @@ public class Settings {
 				Arrays.copyOfRange(settingsContent, 48, settingsContent.length);
 		
 		m_currentCharacter = content[84];
+		if (m_isDefaultSettingsFile && m_inputFilePath.equals(SETTINGS_PATH)) {
+			LiveSettings.update(content, newLastModified);
+		}
 		
 		boolean changedAndHasContent = m_lastModified != newLastModified && hasTimeChanged(content);
 		if (changedAndHasContent) {
@@ -1,16 +1,88 @@
 package main.java.ch.mko.fmm.model.score;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import main.java.ch.mko.fmm.i18n.I18NLocale;
+import main.java.ch.mko.fmm.util.StreamingCRC96;
 
 public abstract class SettingsItem {
+
+	private Boolean m_knownValidity;
 	
-	protected abstract byte[] getHashBytes();
+	private final Map<Long, String> m_tooltipTexts = new HashMap<>();
+	
+	private I18NLocale m_tooltipLocale;
 
-	protected abstract byte[] getHashBytesContent();
+	/**
+	 * Adds the hashed parts of the content to {@code crc} without copying them.
+	 * 
+	 * @param crc the hash to update
+	 */
+	protected abstract void updateHash(StreamingCRC96 crc);
 	
+	protected byte[] getHashBytes() {
+		StreamingCRC96 crc = new StreamingCRC96();
+		updateHash(crc);
+		return crc.getValue();
+	}
+
+	protected abstract byte[] getHashBytesContent();
+
 	public boolean isValid() {
+		if (m_knownValidity != null) {
+			return m_knownValidity;
+		}
 		return Arrays.equals(getHashBytes(), getHashBytesContent());
 	}
+
+	/**
+	 * Sets the validity of an item that was restored from the {@link HighscoreIndex}
+	 * without its content.
+	 *
+	 * @param knownValidity the validity or {@code null} to compute it from the content
+	 */
+	protected void setKnownValidity(Boolean knownValidity) {
+		m_knownValidity = knownValidity;
+	}
+	
+	/**
+	 * Clears everything that was derived from the infos, must be called
+	 * as soon as the content is read or saved again.
+	 */
+	protected synchronized void infosChanged() {
+		m_knownValidity = null;
+		m_tooltipTexts.clear();
+	}
+
+	/**
+	 * Writes the decoded infos of this item, so they can be restored without
+	 * reading the file again.
+	 *
+	 * @param out the output of the {@link HighscoreIndex}
+	 * @throws IOException if the infos cannot be written
+	 */
+	protected abstract void writeIndex(DataOutput out) throws IOException;
+
+	/**
+	 * Returns the tooltip text, which is only created once per locale for the given arguments.
+	 */
+	public synchronized String getTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race) {
+		if (m_tooltipLocale != I18NLocale.getLocale()) {
+			m_tooltipTexts.clear();
+			m_tooltipLocale = I18NLocale.getLocale();
+		}
+		long key = (showDetails ? 1L << 48 : 0) | (roundIdx + 1L) << 32 | (characterOrdinal + 1L) << 16 | (race + 1L);
+		String tooltipText = m_tooltipTexts.get(key);
+		if (tooltipText == null) {
+			tooltipText = createTooltipText(showDetails, roundIdx, characterOrdinal, race);
+			m_tooltipTexts.put(key, tooltipText);
+		}
+		return tooltipText;
+	}
 	
-	public abstract String getTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race);
+	protected abstract String createTooltipText(boolean showDetails, int roundIdx, int characterOrdinal, int race);
 }
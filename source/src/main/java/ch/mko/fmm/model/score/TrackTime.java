@@ -1,12 +1,8 @@
 package main.java.ch.mko.fmm.model.score;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.BiFunction;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import main.java.ch.mko.fmm.i18n.I18N;
 import main.java.ch.mko.fmm.i18n.I18NLocale;
@@ -14,6 +10,9 @@ import main.java.ch.mko.fmm.model.enums.Engine;
 import main.java.ch.mko.fmm.model.enums.GameCharacter;
 import main.java.ch.mko.fmm.model.enums.Level;
 import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.model.score.Player.PlayerOrigin;
+import main.java.ch.mko.fmm.model.score.Player.PlayerType;
+import main.java.ch.mko.fmm.util.TimeFormatter;
 
 public class TrackTime implements HighscoreItem {
 	
@@ -55,6 +54,40 @@ public class TrackTime implements HighscoreItem {
 		m_player = player;
 	}
 	
+	protected void writeInfos(DataOutput out) throws IOException {
+		out.writeUTF(m_version);
+		out.writeByte(m_level);
+		out.writeByte(m_engine);
+		out.writeByte(m_character);
+		out.writeFloat(m_time);
+		for (float round : m_rounds) {
+			out.writeFloat(round);
+		}
+		out.writeLong(m_lastModified);
+		out.writeBoolean(m_player.getPlayerName() != null);
+		if (m_player.getPlayerName() != null) {
+			out.writeUTF(m_player.getPlayerName());
+		}
+		out.writeByte(m_player.getPlayerType().ordinal());
+		out.writeByte(m_player.getPlayerOrigin().ordinal());
+	}
+	
+	protected void readInfos(DataInput in) throws IOException {
+		String version = in.readUTF();
+		int level = in.readByte();
+		int engine = in.readByte();
+		int character = in.readByte();
+		float time = in.readFloat();
+		float[] rounds = new float[m_rounds.length];
+		for (int i = 0; i < rounds.length; i++) {
+			rounds[i] = in.readFloat();
+		}
+		long lastModified = in.readLong();
+		String name = in.readBoolean() ? in.readUTF() : null;
+		Player player = new Player(name, PlayerType.values()[in.readByte()], PlayerOrigin.values()[in.readByte()]);
+		updateInfos(version, level, engine, character, time, rounds, lastModified, player);
+	}
+	
 	public SettingsItem getSource() {
 		return m_source;
 	}
@@ -64,6 +97,14 @@ public class TrackTime implements HighscoreItem {
 		return Version.getVersion(m_version);
 	}
 	
+	String getVersionName() {
+		return m_version;
+	}
+	
+	int getCharacterIndex() {
+		return m_character;
+	}
+	
 	public Level getLevel() {
 		return Level.values()[m_level];
 	}
@@ -135,38 +176,71 @@ public class TrackTime implements HighscoreItem {
 	}
 	
 	public String getInfoTable(String tableStyle, String tdStyle, String[] boldRows, String[][] additionalRows) {
-		final List<String> boldRowsList = boldRows != null ? Arrays.asList(boldRows) : new ArrayList<>();
-		additionalRows = additionalRows != null ? additionalRows : new String[0][];
-		
-		BiFunction<String, String, String> makeRowBold = (key, value) -> {
-			return boldRowsList.contains(key) ? "<b>" + value + "</b>" : value;
-		};
-		String tdStart = "<td " + tdStyle + ">";
-		return "<table " + tableStyle + ">" + Stream.concat(Arrays.stream(getInfo()), Arrays.stream(additionalRows))
-				.map(info -> IntStream.range(0, (info.length-1)/2)
-						.mapToObj(i -> {
-							String key = info[0];
-							String key_I18N = I18NLocale.getString(key.toLowerCase());
-							return "<tr>" + tdStart + (i == 0 ? makeRowBold.apply(key + info[2*i+1], key_I18N): "") + "</td>"
-									+ tdStart + makeRowBold.apply(key + info[2*i+1], info[2*i+1]) + "</td>"
-									+ tdStart + makeRowBold.apply(key + info[2*i+1], info[2*i+2]) + "</td></tr>";
-						})
-						.reduce("", (a, b) -> a + b))
-				.reduce("", (a, b) -> a + b) + "</table>";
+		return appendInfoTable(new StringBuilder(), tableStyle, tdStyle, boldRows, additionalRows).toString();
+	}
+	
+	/**
+	 * Appends the HTML table of {@link #getInfo()} and the additional rows.
+	 * 
+	 * @param sb the builder of the tooltip
+	 * @return {@code sb}
+	 */
+	public StringBuilder appendInfoTable(StringBuilder sb, String tableStyle, String tdStyle, String[] boldRows,
+			String[][] additionalRows) {
+		sb.append("<table ").append(tableStyle).append('>');
+		appendInfoRows(sb, getInfo(), tdStyle, boldRows);
+		if (additionalRows != null) {
+			appendInfoRows(sb, additionalRows, tdStyle, boldRows);
+		}
+		return sb.append("</table>");
+	}
+	
+	private static void appendInfoRows(StringBuilder sb, String[][] infos, String tdStyle, String[] boldRows) {
+		for (String[] info : infos) {
+			String key = info[0];
+			for (int i = 0; i < (info.length-1)/2; i++) {
+				boolean isBold = isBoldRow(boldRows, key, info[2*i+1]);
+				sb.append("<tr>");
+				appendCell(sb, tdStyle, i == 0 ? I18NLocale.getString(key.toLowerCase()) : "", isBold && i == 0);
+				appendCell(sb, tdStyle, info[2*i+1], isBold);
+				appendCell(sb, tdStyle, info[2*i+2], isBold);
+				sb.append("</tr>");
+			}
+		}
+	}
+	
+	private static boolean isBoldRow(String[] boldRows, String key, String subKey) {
+		if (boldRows != null) {
+			for (String boldRow : boldRows) {
+				if (boldRow.length() == key.length() + subKey.length()
+						&& boldRow.startsWith(key) && boldRow.endsWith(subKey)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static void appendCell(StringBuilder sb, String tdStyle, String value, boolean isBold) {
+		sb.append("<td ").append(tdStyle).append('>');
+		if (isBold) {
+			sb.append("<b>").append(value).append("</b>");
+		} else {
+			sb.append(value);
+		}
+		sb.append("</td>");
 	}
 	
 	public static String getTimeString(float time) {
-		int centiSecs = Math.round(100*time);
-		return new SimpleDateFormat("mm:ss").format(1000 * (centiSecs/100)) + "."
-				+ String.format("%02d", centiSecs % 100);
+		return TimeFormatter.formatTime(time);
 	}
 	
 	public static String getDateString(long date) {
-		return new SimpleDateFormat("dd.MM.yyyy").format(date);
+		return TimeFormatter.formatDate(date);
 	}
 	
 	public static String getDateTimeString(long date) {
-		return new SimpleDateFormat("dd.MM.yyyy HH:mm:ss").format(date);
+		return TimeFormatter.formatDateTime(date);
 	}
 
 	public static String getDefaultName(String prefix, int engine, int level) {
@@ -0,0 +1,378 @@
+package main.java.ch.mko.fmm.model.score;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import main.java.ch.mko.fmm.MainFrame;
+import main.java.ch.mko.fmm.model.enums.Engine;
+import main.java.ch.mko.fmm.model.enums.Level;
+import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.util.ArchiveLoader;
+
+/**
+ * The saved trials of one engine and level, stored column by column instead of
+ * one {@link Phantom} with its {@link TrackTime} and {@link Player} per trial.
+ * The phantoms are only created for the rows which are shown.
+ * <p>
+ * Rows are only appended while holding the lock of the class. The columns are
+ * published together with their number of rows in one immutable snapshot, so a
+ * reader which takes the snapshot once can read all of its rows without locking.
+ * A column is only written after the rows of the published snapshot or replaced
+ * by a larger copy.
+ */
+public class TrackTimeStore {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final TrackTimeStore[] stores = new TrackTimeStore[Engine.values().length * Level.values().length];
+
+	private final Engine m_engine;
+
+	private final Level m_level;
+
+	private final File m_dir;
+
+	private long m_dirLastModified;
+
+	private volatile Columns m_columns = new Columns(0, INITIAL_CAPACITY);
+
+	private final List<String> m_versionNames = new ArrayList<>();
+
+	private final List<Player> m_players = new ArrayList<>();
+
+	private final Set<String> m_storedPaths = new HashSet<>();
+
+	/**
+	 * The columns of the stored rows and their number of rows.
+	 */
+	private static final class Columns {
+
+		private final int m_size;
+
+		private final String[] m_paths;
+
+		private final float[] m_time;
+
+		private final float[] m_round0;
+
+		private final float[] m_round1;
+
+		private final float[] m_round2;
+
+		private final long[] m_lastModified;
+
+		private final byte[] m_character;
+
+		private final byte[] m_version;
+
+		private final int[] m_player;
+
+		private Columns(int size, int capacity) {
+			m_size = size;
+			m_paths = new String[capacity];
+			m_time = new float[capacity];
+			m_round0 = new float[capacity];
+			m_round1 = new float[capacity];
+			m_round2 = new float[capacity];
+			m_lastModified = new long[capacity];
+			m_character = new byte[capacity];
+			m_version = new byte[capacity];
+			m_player = new int[capacity];
+		}
+
+		/**
+		 * Shares the columns, whose rows after the previous size are not read yet.
+		 */
+		private Columns(Columns columns, int size) {
+			m_size = size;
+			m_paths = columns.m_paths;
+			m_time = columns.m_time;
+			m_round0 = columns.m_round0;
+			m_round1 = columns.m_round1;
+			m_round2 = columns.m_round2;
+			m_lastModified = columns.m_lastModified;
+			m_character = columns.m_character;
+			m_version = columns.m_version;
+			m_player = columns.m_player;
+		}
+
+		/**
+		 * Copies the columns into larger ones.
+		 */
+		private Columns(Columns columns, int size, int capacity) {
+			m_size = size;
+			m_paths = Arrays.copyOf(columns.m_paths, capacity);
+			m_time = Arrays.copyOf(columns.m_time, capacity);
+			m_round0 = Arrays.copyOf(columns.m_round0, capacity);
+			m_round1 = Arrays.copyOf(columns.m_round1, capacity);
+			m_round2 = Arrays.copyOf(columns.m_round2, capacity);
+			m_lastModified = Arrays.copyOf(columns.m_lastModified, capacity);
+			m_character = Arrays.copyOf(columns.m_character, capacity);
+			m_version = Arrays.copyOf(columns.m_version, capacity);
+			m_player = Arrays.copyOf(columns.m_player, capacity);
+		}
+
+		private int capacity() {
+			return m_time.length;
+		}
+
+		private float getTime(int row, int round) {
+			switch (round) {
+			case 0:
+				return m_round0[row];
+			case 1:
+				return m_round1[row];
+			case 2:
+				return m_round2[row];
+			default:
+				return m_time[row];
+			}
+		}
+	}
+
+	private TrackTimeStore(Engine engine, Level level) {
+		m_engine = engine;
+		m_level = level;
+		m_dir = Paths.get(Phantom.PHANTOM_DIR, TrackTime.getDefaultName("phantom", engine.ordinal(), level.ordinal())).toFile();
+	}
+
+	private static int getStoreIndex(Engine engine, Level level) {
+		return engine.ordinal() * Level.values().length + level.ordinal();
+	}
+
+	/**
+	 * Returns the store of the saved trials, which is read again if the archive
+	 * directory changed since it was read the last time.
+	 *
+	 * @throws UncheckedIOException if the reading was interrupted
+	 */
+	public static synchronized TrackTimeStore getStore(Engine engine, Level level) {
+		int i = getStoreIndex(engine, level);
+		TrackTimeStore store = stores[i];
+		if (store == null || store.m_dir.lastModified() != store.m_dirLastModified) {
+			store = new TrackTimeStore(engine, level);
+			store.load();
+			stores[i] = store;
+		}
+		return store;
+	}
+
+	/**
+	 * Appends a newly saved trial to the store of its engine and level, so the
+	 * archive directory is not read again. A trial which was already read by a
+	 * reload after it was saved is not appended twice.
+	 *
+	 * @param phantom the saved phantom
+	 */
+	public static synchronized void add(Phantom phantom) {
+		TrackTime trackTime = phantom.getTrackTime();
+		TrackTimeStore store = stores[getStoreIndex(trackTime.getEngine(), trackTime.getLevel())];
+		if (store != null) {
+			store.addRow(phantom);
+			store.m_dirLastModified = store.m_dir.lastModified();
+		}
+	}
+
+	private void load() {
+		m_dirLastModified = m_dir.lastModified();
+		List<File> files = ArchiveLoader.listFiles(new File[] { m_dir });
+		HighscoreIndex index = HighscoreIndex.getIndex();
+		List<Phantom> phantoms;
+		try {
+			phantoms = ArchiveLoader.loadAll(files, file -> {
+				try {
+					return index.getPhantom(file);
+				} catch (ClosedByInterruptException | InterruptedIOException ie) {
+					throw ie;
+				} catch (IOException | RuntimeException e) {
+					// a missing or corrupt file is skipped instead of failing the whole loading
+					e.printStackTrace();
+					return null;
+				}
+			});
+		} catch (IOException ioe) {
+			// only thrown if the loading was interrupted, the other exceptions are handled per file
+			throw new UncheckedIOException(ioe);
+		}
+
+		for (int i = 0; i < phantoms.size(); i++) {
+			if (phantoms.get(i) != null) {
+				addRow(phantoms.get(i));
+			} else {
+				MainFrame.LOG_PANEL.warn("Phantom " + files.get(i).getAbsolutePath() + " is not valid!");
+			}
+		}
+		index.saveIndex();
+	}
+
+	private void addRow(Phantom phantom) {
+		if (!m_storedPaths.add(new File(phantom.getInputFilePath()).getAbsolutePath())) {
+			return;
+		}
+		Columns columns = m_columns;
+		int row = columns.m_size;
+		Columns appended = row == columns.capacity() ? new Columns(columns, row + 1, 2 * row)
+				: new Columns(columns, row + 1);
+		// the row is written before the snapshot which contains it is published
+		fillRow(appended, row, phantom);
+		m_columns = appended;
+	}
+
+	private void fillRow(Columns columns, int row, Phantom phantom) {
+		TrackTime trackTime = phantom.getTrackTime();
+		columns.m_paths[row] = phantom.getInputFilePath();
+		columns.m_time[row] = trackTime.getTime();
+		columns.m_round0[row] = trackTime.getRound(0);
+		columns.m_round1[row] = trackTime.getRound(1);
+		columns.m_round2[row] = trackTime.getRound(2);
+		columns.m_lastModified[row] = trackTime.getLastModified();
+		columns.m_character[row] = (byte) trackTime.getCharacterIndex();
+		columns.m_version[row] = (byte) getId(m_versionNames, trackTime.getVersionName());
+		columns.m_player[row] = getPlayerId(trackTime.getPlayer());
+	}
+
+	private static <T> int getId(List<T> values, T value) {
+		int id = values.indexOf(value);
+		if (id == -1) {
+			id = values.size();
+			values.add(value);
+		}
+		return id;
+	}
+
+	private int getPlayerId(Player player) {
+		for (int id = 0; id < m_players.size(); id++) {
+			Player other = m_players.get(id);
+			if (player.equals(other) && player.getPlayerOrigin() == other.getPlayerOrigin()) {
+				return id;
+			}
+		}
+		m_players.add(player);
+		return m_players.size() - 1;
+	}
+
+	public Engine getEngine() {
+		return m_engine;
+	}
+
+	public Level getLevel() {
+		return m_level;
+	}
+
+	public int size() {
+		return m_columns.m_size;
+	}
+
+	public float getTime(int row) {
+		return m_columns.m_time[row];
+	}
+
+	/**
+	 * @param round the index of the round or -1 for the total time
+	 */
+	public float getTime(int row, int round) {
+		return m_columns.getTime(row, round);
+	}
+
+	public long getLastModified(int row) {
+		return m_columns.m_lastModified[row];
+	}
+
+	public int getCharacterIndex(int row) {
+		return m_columns.m_character[row];
+	}
+
+	public Version getVersion(int row) {
+		synchronized (TrackTimeStore.class) {
+			return Version.getVersion(m_versionNames.get(m_columns.m_version[row]));
+		}
+	}
+
+	/**
+	 * Creates the phantom of a row, which is not read from its file again.
+	 */
+	public Phantom getPhantom(int row) {
+		return getPhantom(m_columns, row);
+	}
+
+	private Phantom getPhantom(Columns columns, int row) {
+		String versionName;
+		Player player;
+		synchronized (TrackTimeStore.class) {
+			versionName = m_versionNames.get(columns.m_version[row]);
+			player = m_players.get(columns.m_player[row]);
+		}
+		return Phantom.fromStore(columns.m_paths[row], versionName, m_level.ordinal(), m_engine.ordinal(),
+				columns.m_character[row], columns.m_time[row],
+				new float[] { columns.m_round0[row], columns.m_round1[row], columns.m_round2[row] },
+				columns.m_lastModified[row], player);
+	}
+
+	/**
+	 * Selects the highscores like {@link HighscoreList#selectHighscores}, but only
+	 * creates the phantoms of the selected rows.
+	 *
+	 * @param filter the compiled character and version filter
+	 * @param roundsFilter 0 for all rounds, -1 for the total time or the number of the round
+	 * @param limitToRank the number of selected highscores or -1 to select all of them
+	 * @return the sorted highscores
+	 */
+	public Highscore[] selectHighscores(HighscoreFilter filter, int roundsFilter, int limitToRank) {
+		Columns columns = m_columns;
+		int size = columns.m_size;
+		boolean[] versionMatches;
+		synchronized (TrackTimeStore.class) {
+			versionMatches = new boolean[m_versionNames.size()];
+			for (int id = 0; id < versionMatches.length; id++) {
+				versionMatches[id] = filter.matchesVersion(Version.getVersion(m_versionNames.get(id)));
+			}
+		}
+		int characterMask = 0;
+		for (int characterIdx = 0; characterIdx < Integer.SIZE; characterIdx++) {
+			if (filter.matchesCharacter(characterIdx)) {
+				characterMask |= 1 << characterIdx;
+			}
+		}
+		int[] rounds = roundsFilter == 0 ? new int[] { 0, 1, 2 } : new int[] { roundsFilter != -1 ? roundsFilter - 1 : -1 };
+
+		int count = 0;
+		int[] candidates = new int[size * rounds.length];
+		long[] sortKeys = new long[candidates.length];
+		long[] lastModified = new long[candidates.length];
+		for (int row = 0; row < size; row++) {
+			int character = columns.m_character[row];
+			if (character >= 0 && character < Integer.SIZE && (characterMask & 1 << character) != 0 && versionMatches[columns.m_version[row]]) {
+				for (int i = 0; i < rounds.length; i++) {
+					candidates[count] = row * rounds.length + i;
+					sortKeys[count] = Highscore.getSortKey(columns.getTime(row, rounds[i]), columns.m_lastModified[row]);
+					lastModified[count] = columns.m_lastModified[row];
+					count++;
+				}
+			}
+		}
+
+		// if the rank is limited, only the best candidates are kept instead of sorting all of them
+		int[] order = limitToRank != -1 ? Highscore.selectOrder(sortKeys, lastModified, count, limitToRank)
+				: Highscore.sortOrder(sortKeys, lastModified, count);
+		Highscore[] highscores = new Highscore[order.length];
+		Map<Integer, Phantom> phantoms = new HashMap<>();
+		for (int i = 0; i < order.length; i++) {
+			int candidate = candidates[order[i]];
+			int row = candidate / rounds.length;
+			Phantom phantom = phantoms.computeIfAbsent(row, r -> getPhantom(columns, r));
+			highscores[i] = new Highscore(phantom.getTrackTime(), rounds[candidate % rounds.length]);
+		}
+		return highscores;
+	}
+}
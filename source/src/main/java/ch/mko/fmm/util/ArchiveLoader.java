@@ -0,0 +1,143 @@
+package main.java.ch.mko.fmm.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The loader for the files in the archive directories (phantoms, championships
+ * and duels). The files are decoded concurrently by a bounded pool of worker
+ * threads, but the results are always returned in the order of the files.
+ */
+public class ArchiveLoader {
+
+	private static final int THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	private static ExecutorService executor;
+
+	/**
+	 * The loading of a single file.
+	 *
+	 * @param <T> the type of the loaded result
+	 */
+	public static interface FileLoader<T> {
+		T load(File file) throws IOException;
+	}
+
+	private ArchiveLoader() {
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			AtomicInteger threadCount = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+				Thread thread = new Thread(runnable, "archive-loader-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Returns the files in {@code items} sorted by name, where each directory is
+	 * replaced by its files sorted by name.
+	 *
+	 * @param items the archive directories and files, may be {@code null}
+	 * @return the files to load
+	 */
+	public static List<File> listFiles(File[] items) {
+		List<File> files = new ArrayList<>();
+		if (items == null) {
+			return files;
+		}
+
+		File[] sortedItems = items.clone();
+		Arrays.sort(sortedItems);
+		for (File item : sortedItems) {
+			if (item.isDirectory()) {
+				File[] dirFiles = item.listFiles();
+				if (dirFiles != null) {
+					Arrays.sort(dirFiles);
+					files.addAll(Arrays.asList(dirFiles));
+				}
+			} else if (item.isFile()) {
+				files.add(item);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Loads all files concurrently.
+	 *
+	 * @param files the files to load
+	 * @param loader the loading of a single file
+	 * @return the results in the same order as {@code files}
+	 * @throws IOException the first exception in the order of {@code files}
+	 * 		after all files were processed, or an {@link InterruptedIOException}
+	 * 		if the calling thread was interrupted
+	 */
+	public static <T> List<T> loadAll(List<File> files, FileLoader<T> loader) throws IOException {
+		List<T> results = new ArrayList<>(files.size());
+		if (files.size() < 2) {
+			for (File file : files) {
+				results.add(loader.load(file));
+			}
+			return results;
+		}
+
+		List<Future<T>> futures = new ArrayList<>(files.size());
+		for (File file : files) {
+			futures.add(getExecutor().submit(() -> loader.load(file)));
+		}
+
+		IOException firstException = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(getResult(futures.get(i)));
+			} catch (InterruptedException e) {
+				for (Future<T> future : futures.subList(i, futures.size())) {
+					future.cancel(false);
+				}
+				throw new InterruptedIOException("Loading of the archive files was interrupted!");
+			} catch (IOException ioe) {
+				if (firstException == null) {
+					firstException = ioe;
+				}
+				results.add(null);
+			}
+		}
+		if (firstException != null) {
+			throw firstException;
+		}
+		return results;
+	}
+
+	private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
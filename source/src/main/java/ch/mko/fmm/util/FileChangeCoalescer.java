@@ -0,0 +1,98 @@
+package main.java.ch.mko.fmm.util;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import main.java.ch.mko.fmm.MainFrame;
+
+/**
+ * Coalesces the change events of a file which is written in several parts.
+ * The handler is called once as soon as the size and the modification time
+ * of the file did not change for the quiet period.
+ */
+public class FileChangeCoalescer {
+
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "file-change-coalescer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final File m_file;
+
+	private final long m_quietPeriodMillis;
+
+	private final Runnable m_handler;
+
+	private ScheduledFuture<?> m_pendingCheck;
+
+	private long m_generation;
+
+	private long m_size;
+
+	private long m_lastModified;
+
+	/**
+	 * @param file the watched file
+	 * @param quietPeriodMillis the time without changes after which the handler is called
+	 * @param handler the handler of a completed write, called on the thread of the coalescer
+	 */
+	public FileChangeCoalescer(File file, long quietPeriodMillis, Runnable handler) {
+		m_file = file;
+		m_quietPeriodMillis = quietPeriodMillis;
+		m_handler = handler;
+	}
+
+	/**
+	 * Called for each change event of the file, restarts the quiet period.
+	 */
+	public synchronized void fileChanged() {
+		m_size = m_file.length();
+		m_lastModified = m_file.lastModified();
+		cancel();
+		scheduleCheck();
+	}
+
+	/**
+	 * Drops a pending change without calling the handler.
+	 */
+	public synchronized void cancel() {
+		m_generation++;
+		if (m_pendingCheck != null) {
+			m_pendingCheck.cancel(false);
+			m_pendingCheck = null;
+		}
+	}
+
+	private void scheduleCheck() {
+		long generation = m_generation;
+		m_pendingCheck = SCHEDULER.schedule(() -> checkSettled(generation), m_quietPeriodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void checkSettled(long generation) {
+		synchronized (this) {
+			if (generation != m_generation) {
+				return;
+			}
+			long size = m_file.length();
+			long lastModified = m_file.lastModified();
+			if (size != m_size || lastModified != m_lastModified) {
+				// changed without an event so far, so wait for another quiet period
+				m_size = size;
+				m_lastModified = lastModified;
+				scheduleCheck();
+				return;
+			}
+			m_pendingCheck = null;
+		}
+
+		try {
+			m_handler.run();
+		} catch (RuntimeException e) {
+			MainFrame.LOG_PANEL.error("Exception occurred while handling change of " + m_file.getPath() + ": " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package main.java.ch.mko.fmm.util;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import main.java.ch.mko.fmm.MainFrame;
+
+/**
+ * The single watcher of all watched files and directories. One thread waits for
+ * the changes of all registered directories and routes them by their path to the
+ * registered handlers. Paths can be registered and cancelled at any time.
+ */
+public class FileChangeDispatcher {
+
+	private static FileChangeDispatcher dispatcher;
+
+	private final WatchService m_watchService;
+
+	private final Map<WatchKey, Path> m_watchedDirs = new ConcurrentHashMap<>();
+
+	private final Map<Path, WatchKey> m_watchKeys = new ConcurrentHashMap<>();
+
+	private final Map<Path, List<FileChangeHandler>> m_fileHandlers = new ConcurrentHashMap<>();
+
+	private final Map<Path, List<FileChangeHandler>> m_dirHandlers = new ConcurrentHashMap<>();
+
+	/**
+	 * The handler of the changes of a watched file or directory.
+	 */
+	public static interface FileChangeHandler {
+
+		/**
+		 * Called on the thread of the dispatcher for each change.
+		 *
+		 * @param file the changed file, or the directory if events were lost
+		 * @param kind the kind of the change
+		 */
+		void fileChanged(Path file, WatchEvent.Kind<?> kind);
+
+		/**
+		 * Called if the directory cannot be watched anymore, e.g. because it was deleted.
+		 *
+		 * @param dir the directory which is not watched anymore
+		 */
+		default void watchStopped(Path dir) {
+		}
+	}
+
+	/**
+	 * The registration of a handler, which can be cancelled at runtime.
+	 */
+	public static class Registration {
+
+		private final Map<Path, List<FileChangeHandler>> m_handlers;
+
+		private final Path m_path;
+
+		private final FileChangeHandler m_handler;
+
+		private Registration(Map<Path, List<FileChangeHandler>> handlers, Path path, FileChangeHandler handler) {
+			m_handlers = handlers;
+			m_path = path;
+			m_handler = handler;
+		}
+
+		public void cancel() {
+			List<FileChangeHandler> handlers = m_handlers.get(m_path);
+			if (handlers != null) {
+				handlers.remove(m_handler);
+			}
+		}
+	}
+
+	private FileChangeDispatcher() throws IOException {
+		m_watchService = FileSystems.getDefault().newWatchService();
+		Thread thread = new Thread(this::dispatchChanges, "file-change-dispatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public static synchronized FileChangeDispatcher getDispatcher() throws IOException {
+		if (dispatcher == null) {
+			dispatcher = new FileChangeDispatcher();
+		}
+		return dispatcher;
+	}
+
+	/**
+	 * Watches the creations and modifications of a single file.
+	 *
+	 * @param file the watched file
+	 * @param handler the handler of the changes
+	 * @return the registration of the handler
+	 * @throws IOException if the directory of the file cannot be watched
+	 */
+	public Registration watchFile(Path file, FileChangeHandler handler) throws IOException {
+		Path absoluteFile = file.toAbsolutePath().normalize();
+		watchDirectory(absoluteFile.getParent());
+		return register(m_fileHandlers, absoluteFile, handler);
+	}
+
+	/**
+	 * Watches the creations, modifications and deletions of all files in a directory.
+	 *
+	 * @param dir the watched directory
+	 * @param handler the handler of the changes
+	 * @return the registration of the handler
+	 * @throws IOException if the directory cannot be watched
+	 */
+	public Registration watchDirectory(Path dir, FileChangeHandler handler) throws IOException {
+		Path absoluteDir = dir.toAbsolutePath().normalize();
+		watchDirectory(absoluteDir);
+		return register(m_dirHandlers, absoluteDir, handler);
+	}
+
+	private static Registration register(Map<Path, List<FileChangeHandler>> handlers, Path path, FileChangeHandler handler) {
+		handlers.computeIfAbsent(path, p -> new CopyOnWriteArrayList<>()).add(handler);
+		return new Registration(handlers, path, handler);
+	}
+
+	private synchronized void watchDirectory(Path dir) throws IOException {
+		WatchKey key = m_watchKeys.get(dir);
+		if (key == null || !key.isValid()) {
+			key = dir.register(m_watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+			m_watchKeys.put(dir, key);
+			m_watchedDirs.put(key, dir);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void dispatchChanges() {
+		try {
+			while (true) {
+				WatchKey key = m_watchService.take();
+				Path dir = m_watchedDirs.get(key);
+				if (dir == null) {
+					key.cancel();
+					continue;
+				}
+
+				for (WatchEvent<?> event : key.pollEvents()) {
+					WatchEvent.Kind<?> kind = event.kind();
+					if (kind == StandardWatchEventKinds.OVERFLOW) {
+						// the changed files are unknown, so every handler of the directory is notified
+						for (Map.Entry<Path, List<FileChangeHandler>> entry : m_fileHandlers.entrySet()) {
+							if (dir.equals(entry.getKey().getParent())) {
+								notifyHandlers(entry.getValue(), entry.getKey(), kind);
+							}
+						}
+						notifyHandlers(m_dirHandlers.get(dir), dir, kind);
+					} else {
+						Path file = dir.resolve(((WatchEvent<Path>) event).context());
+						notifyHandlers(m_fileHandlers.get(file), file, kind);
+						notifyHandlers(m_dirHandlers.get(dir), file, kind);
+					}
+				}
+
+				if (!key.reset()) {
+					stopWatching(key, dir);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			MainFrame.LOG_PANEL.warn("Stopped watching the game files.");
+		}
+	}
+
+	private void notifyHandlers(List<FileChangeHandler> handlers, Path file, WatchEvent.Kind<?> kind) {
+		if (handlers != null) {
+			for (FileChangeHandler handler : handlers) {
+				try {
+					handler.fileChanged(file, kind);
+				} catch (RuntimeException e) {
+					MainFrame.LOG_PANEL.error("Exception occurred while handling change of " + file + ": " + e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	private void stopWatching(WatchKey key, Path dir) {
+		synchronized (this) {
+			m_watchedDirs.remove(key);
+			m_watchKeys.remove(dir, key);
+		}
+
+		for (Map.Entry<Path, List<FileChangeHandler>> entry : m_fileHandlers.entrySet()) {
+			if (dir.equals(entry.getKey().getParent())) {
+				for (FileChangeHandler handler : entry.getValue()) {
+					handler.watchStopped(dir);
+				}
+			}
+		}
+		List<FileChangeHandler> dirHandlers = m_dirHandlers.get(dir);
+		if (dirHandlers != null) {
+			for (FileChangeHandler handler : dirHandlers) {
+				handler.watchStopped(dir);
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package main.java.ch.mko.fmm.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import crc.CRC64;
+import crc.CRC96;
+
+/**
+ * The incremental version of {@link CRC96#fromBytes2(byte[], byte[])}.
+ * The first part of the hashed content is included in both the CRC32 and
+ * the CRC64 and the second part only in the CRC64. So the content can be
+ * hashed in place, e.g. around the hash bytes that are stored in the content itself.
+ */
+public class StreamingCRC96 {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private final CRC32 m_crc32 = new CRC32();
+
+	private final CRC64 m_crc64 = new CRC64();
+
+	private byte[] m_chunk;
+
+	/**
+	 * Adds bytes of the first part.
+	 *
+	 * @param bytes the content
+	 * @param off the start offset in {@code bytes}
+	 * @param len the number of bytes to add
+	 */
+	public void updateFirstPart(byte[] bytes, int off, int len) {
+		m_crc32.update(bytes, off, len);
+		m_crc64.update(bytes, off, len);
+	}
+
+	/**
+	 * Adds bytes of the second part.
+	 *
+	 * @param bytes the content
+	 * @param off the start offset in {@code bytes}
+	 * @param len the number of bytes to add
+	 */
+	public void update(byte[] bytes, int off, int len) {
+		m_crc64.update(bytes, off, len);
+	}
+
+	/**
+	 * Adds bytes of the first part that are read from a file.
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position of the first byte in the file
+	 * @param len the number of bytes to add
+	 * @throws IOException if the file cannot be read or is too short
+	 */
+	public void updateFirstPart(FileChannel channel, long position, long len) throws IOException {
+		update(channel, position, len, true);
+	}
+
+	/**
+	 * Adds bytes of the second part that are read from a file.
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position of the first byte in the file
+	 * @param len the number of bytes to add
+	 * @throws IOException if the file cannot be read or is too short
+	 */
+	public void update(FileChannel channel, long position, long len) throws IOException {
+		update(channel, position, len, false);
+	}
+
+	private void update(FileChannel channel, long position, long len, boolean firstPart) throws IOException {
+		byte[] chunk = getChunk();
+		ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+		for (long done = 0; done < len; ) {
+			chunkBuffer.clear();
+			chunkBuffer.limit((int) Math.min(chunk.length, len - done));
+			int read = channel.read(chunkBuffer, position + done);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file while computing the hash!");
+			}
+			if (firstPart) {
+				updateFirstPart(chunk, 0, read);
+			} else {
+				update(chunk, 0, read);
+			}
+			done += read;
+		}
+	}
+
+	private byte[] getChunk() {
+		if (m_chunk == null) {
+			m_chunk = new byte[CHUNK_SIZE];
+		}
+		return m_chunk;
+	}
+
+	/**
+	 * @return the 12 hash bytes like {@link CRC96#getValue()}
+	 */
+	public byte[] getValue() {
+		byte[] value = new byte[12];
+		byte[] crc32Bytes = CRC96.getBytesFromLong(m_crc32.getValue());
+		byte[] crc64Bytes = m_crc64.getBytes();
+		System.arraycopy(crc32Bytes, 0, value, 0, crc32Bytes.length);
+		System.arraycopy(crc64Bytes, 0, value, crc32Bytes.length, crc64Bytes.length);
+		return value;
+	}
+}
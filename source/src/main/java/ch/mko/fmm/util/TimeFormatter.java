@@ -0,0 +1,98 @@
+package main.java.ch.mko.fmm.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The formatter for the times and dates of the highscores. All methods are
+ * thread-safe, so they can be used by the watcher threads as well.
+ */
+public class TimeFormatter {
+
+	private static final ZoneId ZONE = ZoneId.systemDefault();
+
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZONE);
+
+	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").withZone(ZONE);
+
+	private static final int TIME_LENGTH = 8;
+
+	/**
+	 * The formatted date of the last requested day. It is replaced as a whole,
+	 * so it can be read without locking.
+	 */
+	private static volatile DayMemo dayMemo = new DayMemo(0, 0, "");
+
+	private static class DayMemo {
+
+		private final long m_dayStart;
+
+		private final long m_dayEnd;
+
+		private final String m_dateString;
+
+		private DayMemo(long dayStart, long dayEnd, String dateString) {
+			m_dayStart = dayStart;
+			m_dayEnd = dayEnd;
+			m_dateString = dateString;
+		}
+	}
+
+	private TimeFormatter() {
+	}
+
+	/**
+	 * Appends the time as mm:ss.cc.
+	 *
+	 * @param sb the builder to append to
+	 * @param time the time in seconds
+	 * @return {@code sb}
+	 */
+	public static StringBuilder appendTime(StringBuilder sb, float time) {
+		int centiSecs = Math.round(100*time);
+		int secs = Math.floorDiv(centiSecs, 100);
+		int minutes = Math.floorMod(Math.floorDiv(secs, 60), 60);
+		int seconds = Math.floorMod(secs, 60);
+		int centis = Math.floorMod(centiSecs, 100);
+		return sb.append((char) ('0' + minutes / 10)).append((char) ('0' + minutes % 10)).append(':')
+				.append((char) ('0' + seconds / 10)).append((char) ('0' + seconds % 10)).append('.')
+				.append((char) ('0' + centis / 10)).append((char) ('0' + centis % 10));
+	}
+
+	/**
+	 * @param time the time in seconds
+	 * @return the time as mm:ss.cc
+	 */
+	public static String formatTime(float time) {
+		return appendTime(new StringBuilder(TIME_LENGTH), time).toString();
+	}
+
+	/**
+	 * @param date the milliseconds since the epoch
+	 * @return the date as dd.MM.yyyy
+	 */
+	public static String formatDate(long date) {
+		DayMemo memo = dayMemo;
+		if (date >= memo.m_dayStart && date < memo.m_dayEnd) {
+			return memo.m_dateString;
+		}
+
+		LocalDate day = Instant.ofEpochMilli(date).atZone(ZONE).toLocalDate();
+		ZonedDateTime dayStart = day.atStartOfDay(ZONE);
+		memo = new DayMemo(dayStart.toInstant().toEpochMilli(),
+				day.plusDays(1).atStartOfDay(ZONE).toInstant().toEpochMilli(), DATE_FORMATTER.format(dayStart));
+		dayMemo = memo;
+		return memo.m_dateString;
+	}
+
+	/**
+	 * @param date the milliseconds since the epoch
+	 * @return the date as dd.MM.yyyy HH:mm:ss
+	 */
+	public static String formatDateTime(long date) {
+		return DATE_TIME_FORMATTER.format(Instant.ofEpochMilli(date));
+	}
+}
@@ -1,8 +1,11 @@
 package main.java.ch.mko.fmm.views;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -10,7 +13,9 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import main.java.ch.mko.fmm.MainFrame;
@@ -20,6 +25,7 @@ import main.java.ch.mko.fmm.model.enums.Engine;
 import main.java.ch.mko.fmm.model.enums.GameCharacter;
 import main.java.ch.mko.fmm.model.enums.Level;
 import main.java.ch.mko.fmm.model.enums.Version;
+import main.java.ch.mko.fmm.model.score.BestPhantoms;
 import main.java.ch.mko.fmm.model.score.Highscore;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings.PhantomMode;
@@ -31,6 +37,24 @@ public class CustomPhantom implements Serializable, Cloneable, Comparable<Custom
 
 	private static final long serialVersionUID = -5485403151459873202L;
 
+	/**
+	 * The hashes of the installed phantoms by their path, valid as long as the
+	 * file was not modified.
+	 */
+	private static final Map<Path, InstalledHash> INSTALLED_HASHES = new HashMap<>();
+	
+	private static class InstalledHash {
+		
+		private final long m_lastModified;
+		
+		private final byte[] m_hash;
+		
+		private InstalledHash(long lastModified, byte[] hash) {
+			m_lastModified = lastModified;
+			m_hash = hash;
+		}
+	}
+	
 	private final String m_inputFilePath;
 	
 	private transient Phantom m_phantom;
@@ -75,6 +99,32 @@ public class CustomPhantom implements Serializable, Cloneable, Comparable<Custom
 		m_characterFilter = characterFilter;
 	}
 	
+	private CustomPhantom(String inputFilePath, boolean usePhantom, VersionFilter versionFilter, CharacterFilter characterFilter) {
+		m_inputFilePath = inputFilePath;
+		m_usePhantom = usePhantom;
+		m_versionFilter = versionFilter;
+		m_characterFilter = characterFilter;
+	}
+	
+	/**
+	 * Reads the custom phantom from the settings file. The phantom itself is not
+	 * loaded until {@link #loadPhantom()}.
+	 */
+	public static CustomPhantom readSettings(DataInput in) throws IOException {
+		String inputFilePath = in.readUTF();
+		boolean usePhantom = in.readBoolean();
+		VersionFilter versionFilter = VersionFilter.valueOf(in.readUTF());
+		CharacterFilter characterFilter = CharacterFilter.valueOf(in.readUTF());
+		return new CustomPhantom(inputFilePath, usePhantom, versionFilter, characterFilter);
+	}
+	
+	public void writeSettings(DataOutput out) throws IOException {
+		out.writeUTF(m_inputFilePath);
+		out.writeBoolean(m_usePhantom);
+		out.writeUTF(m_versionFilter.name());
+		out.writeUTF(m_characterFilter.name());
+	}
+	
 	public String getInputFilePath() {
 		return m_inputFilePath;
 	}
@@ -220,34 +270,11 @@ public class CustomPhantom implements Serializable, Cloneable, Comparable<Custom
 			for (int i = 0; i < numEngines; i++) {
 				for (int j = 0; j < numLevels; j++) {
 					String defaultName = TrackTime.getDefaultName("phantom", i, j);
-					File[] phantomFiles = Paths.get(Phantom.PHANTOM_DIR, defaultName).toFile().listFiles();
-					phantomFiles = phantomFiles != null ? phantomFiles : new File[0];
-					TrackTime bestPhantomTrackTime = (TrackTime) Arrays.stream(phantomFiles)
-							.map(f -> {
-								try {
-									return new Phantom(f.getAbsolutePath());
-								} catch (IOException e) {
-									e.printStackTrace();
-									return null;
-								}
-							})
-							.filter(p -> p != null
-									&& (!onlyCurrentVersion || p.getTrackTime().getVersion() == version)
-									&& (!onlyCurrentCharacter || p.getTrackTime().getCharacter() == character))
-							.map(p -> new Highscore(p.getTrackTime(), -1))
-							.sorted()
-							.findFirst()
-							.orElseGet(() -> {
-								try {
-									Phantom p = new Phantom(Paths.get(Phantom.SOURCE_DIR, defaultName + ".mhk2").toString());
-									return new Highscore(p.getTrackTime(), -1);
-								} catch (IOException e) {
-									e.printStackTrace();
-									return null;
-								}
-							})
-							.getHighscoreItem();
-					Phantom bestPhantom = (Phantom) bestPhantomTrackTime.getSource();
+					Phantom bestPhantom = BestPhantoms.getBestPhantoms().getBestPhantom(Engine.values()[i], Level.values()[j],
+							onlyCurrentVersion ? version : null, onlyCurrentCharacter ? character : null);
+					if (bestPhantom == null) {
+						bestPhantom = new Phantom(Paths.get(Phantom.SOURCE_DIR, defaultName + ".mhk2").toString());
+					}
 					allPhantoms.add(new CustomPhantom(bestPhantom, VersionFilter.ALL_VERSIONS, CharacterFilter.ALL_CHARACTERS));
 				}
 			}
@@ -279,13 +306,50 @@ public class CustomPhantom implements Serializable, Cloneable, Comparable<Custom
 		return allPhantoms;
 	}
 		
-	public static void updateShownPhantoms() throws IOException {
+	/**
+	 * Installs the selected phantoms for the game. A phantom is only written if the
+	 * hash stored in the installed file differs, so unchanged tracks are not touched.
+	 */
+	public static synchronized void updateShownPhantoms() throws IOException {
 		List<CustomPhantom> customPhantoms = getSelectedPhantoms(HighscoreSettings.loadSettings());
 		for (CustomPhantom customPhantom : customPhantoms) {
 			Phantom phantom = customPhantom.getPhantom();
 			Path sourcePhantomPath = Paths.get(phantom.getInputFilePath());
 			Path defaultPhantomPath = Paths.get(Phantom.PHANTOM_DIR, phantom.getDefaultName() + ".mhk2");
-			Files.copy(sourcePhantomPath, defaultPhantomPath, StandardCopyOption.REPLACE_EXISTING);
+			byte[] hash = phantom.getStoredHash();
+			if (!Arrays.equals(hash, getInstalledHash(defaultPhantomPath))) {
+				installPhantom(sourcePhantomPath, defaultPhantomPath);
+				INSTALLED_HASHES.put(defaultPhantomPath, new InstalledHash(defaultPhantomPath.toFile().lastModified(), hash));
+			}
+		}
+	}
+	
+	private static byte[] getInstalledHash(Path defaultPhantomPath) {
+		File defaultPhantomFile = defaultPhantomPath.toFile();
+		if (!defaultPhantomFile.isFile()) {
+			return null;
+		}
+		
+		long lastModified = defaultPhantomFile.lastModified();
+		InstalledHash installedHash = INSTALLED_HASHES.get(defaultPhantomPath);
+		if (installedHash == null || installedHash.m_lastModified != lastModified) {
+			try {
+				installedHash = new InstalledHash(lastModified, Phantom.readHashBytesContent(defaultPhantomPath));
+			} catch (IOException e) {
+				return null;
+			}
+			INSTALLED_HASHES.put(defaultPhantomPath, installedHash);
+		}
+		return installedHash.m_hash;
+	}
+	
+	private static void installPhantom(Path sourcePhantomPath, Path defaultPhantomPath) throws IOException {
+		Path tempPath = Paths.get(defaultPhantomPath.toString() + ".tmp");
+		Files.copy(sourcePhantomPath, tempPath, StandardCopyOption.REPLACE_EXISTING);
+		try {
+			Files.move(tempPath, defaultPhantomPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempPath, defaultPhantomPath, StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
 	
@@ -6,12 +6,17 @@ import java.awt.Component;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseEvent;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
@@ -23,6 +28,7 @@ import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
@@ -46,9 +52,12 @@ import main.java.ch.mko.fmm.model.enums.Version;
 import main.java.ch.mko.fmm.model.score.Championship;
 import main.java.ch.mko.fmm.model.score.Highscore;
 import main.java.ch.mko.fmm.model.score.HighscoreList;
+import main.java.ch.mko.fmm.model.score.HighscoreQuery;
+import main.java.ch.mko.fmm.model.score.HighscoreResult;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings;
 import main.java.ch.mko.fmm.model.score.HighscoreSettings.HighscoreMode;
 import main.java.ch.mko.fmm.model.score.Player;
+import main.java.ch.mko.fmm.model.score.SettingsItem;
 
 public class HighscorePanel extends JPanel {
 
@@ -77,8 +86,20 @@ public class HighscorePanel extends JPanel {
 	private final JCheckBox m_rankLimitBox = new JCheckBox(I18NLocale.getString(I18N.RANK_LIMIT) + ":");
 	private final JSpinner m_rankLimitSpinner = new JSpinner(new SpinnerNumberModel(10, 1, 999, 1));
 	
+	private final JProgressBar m_progressBar = new JProgressBar();
+	
 	private final JTable m_table;
 	
+	private final ExecutorService m_refreshService = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "highscore-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final AtomicLong m_refreshGeneration = new AtomicLong();
+	
+	private Future<?> m_refreshJob;
+	
 	public HighscorePanel() {
 		super(new BorderLayout());
 		
@@ -139,6 +160,9 @@ public class HighscorePanel extends JPanel {
 				}
 			});
 		}
+		modePanel.add(m_progressBar);
+		m_progressBar.setIndeterminate(true);
+		m_progressBar.setVisible(false);
 		
 		JPanel optionsPanel = new JPanel();
 		settingsPanel.add(optionsPanel);
@@ -311,7 +335,21 @@ public class HighscorePanel extends JPanel {
 		updateSettingsInit(settings);
 		
 		final HighscoreModel model = new HighscoreModel(settings);
-		m_table = new JTable(model);
+		m_table = new JTable(model) {
+
+			private static final long serialVersionUID = 3412893162377311045L;
+
+			@Override
+			public String getToolTipText(MouseEvent event) {
+				// only created for the hovered row instead of each painted cell
+				int row = rowAtPoint(event.getPoint());
+				if (row < 0 || row >= model.getRowCount()) {
+					return null;
+				}
+				boolean showDetails = HighscoreSettings.loadSettings().isShowDetailsInTooltips();
+				return model.getHighscore(row).getTooltipText(showDetails);
+			}
+		};
 		JScrollPane jsp = new JScrollPane(m_table);
 		add(jsp, BorderLayout.CENTER);
 		m_table.setFillsViewportHeight(true);
@@ -338,9 +376,6 @@ public class HighscorePanel extends JPanel {
 				} else if (row == 2) {
 					comp.setBackground(new Color(205, 127, 50, transparency));
 				}
-
-				boolean showDetails = HighscoreSettings.loadSettings().isShowDetailsInTooltips();
-				comp.setToolTipText(model.getHighscores()[row].getTooltipText(showDetails));
 				
 				return comp;
 			}
@@ -427,6 +462,27 @@ public class HighscorePanel extends JPanel {
 		m_champChooser.setModel(new DefaultComboBoxModel<String>(champs.toArray(new String[champs.size()])));
 	}
 	
+	/**
+	 * Updates the championships if a saved championship of the selected engine
+	 * was driven on levels which are not in the chooser yet.
+	 */
+	private void addChampionship(Championship championship) {
+		String prefix = "championship-" + (((Engine) m_engineChooser.getSelectedItem()).ordinal() + 1);
+		String defaultName = championship.getDefaultName();
+		if (!defaultName.startsWith(prefix)) {
+			return;
+		}
+		String name = defaultName.substring(prefix.length() + 1);
+		for (int i = 0; i < m_champChooser.getItemCount(); i++) {
+			if (m_champChooser.getItemAt(i).equals(name)) {
+				return;
+			}
+		}
+		String selected = (String) m_champChooser.getSelectedItem();
+		updateChampionships();
+		m_champChooser.setSelectedItem(selected);
+	}
+	
 	private int getSelectedRound() {
 		return m_roundsBox.isSelected() ? ROUNDS_MAP.get((String) m_roundsChooser.getSelectedItem()) : -1;
 	}
@@ -447,20 +503,34 @@ public class HighscorePanel extends JPanel {
 		return m_versionBox.isSelected() ? (Version) m_versionChooser.getSelectedItem() : null;
 	}
 	
+	/**
+	 * The table model. The highscore list and the last result are only used by the
+	 * refresh thread, the other fields only by the Event Dispatch Thread.
+	 */
 	private class HighscoreModel extends AbstractTableModel {
 
 		private static final long serialVersionUID = -611927914564002591L;
 
-		private final HighscoreList m_highscoreList;
+		private final HighscoreSettings m_settings;
+		
+		private final HighscoreList m_highscoreList = new HighscoreList();
+		
+		private HighscoreResult m_result;
+		
+		private HighscoreResult m_shownResult;
 		
 		private Highscore[] m_highscores = new Highscore[0];
 		
+		private String[][] m_rows = new String[0][];
+		
+		private I18NLocale m_rowsLocale;
+		
 		private String[] m_columnNames = new String[0];
 		
 		private int[] m_maxColWidths = new int[0];
 		
 		private HighscoreModel(HighscoreSettings settings) {
-			m_highscoreList = new HighscoreList(settings);
+			m_settings = settings;
 		}
 		
 		@Override
@@ -478,10 +548,10 @@ public class HighscorePanel extends JPanel {
 			return m_highscores.length;
 		}
 		
-		private void updateColumns() {
-			m_columnNames = m_highscoreList.getColumnNames();
+		private void updateColumns(String[] columnNames, int[] maxColWidths) {
+			m_columnNames = columnNames;
 			fireTableStructureChanged();
-			m_maxColWidths = m_highscoreList.getMaximumColumnWidths();
+			m_maxColWidths = maxColWidths;
 			for (int i = 0; i < m_table.getColumnCount(); i++) {
 				if (m_maxColWidths[i] != Integer.MAX_VALUE) {
 					TableColumn col = m_table.getColumnModel().getColumn(i);
@@ -491,53 +561,194 @@ public class HighscorePanel extends JPanel {
 			}
 		}
 		
-		private void updateHighscoreSelection() {
-			m_highscoreList.selectHighscores(getSelectedCharacter(), getSelectedRound(), getSelectedPlayers(), getSelectedVersion());
-			m_highscores = m_highscoreList.getHighscores(getSelectedRankLimit());
-			SwingUtilities.invokeLater(() -> {
-				updateColumns();
-				fireTableDataChanged();
-			});
-		}
-		
-		private void updateTable() {
+		/**
+		 * Starts a refresh of the table in the background. All refreshes that were
+		 * started before are superseded and only the result of the latest one is shown.
+		 * 
+		 * @param generate {@code true} if the generator changed, so the saved files may be read again
+		 */
+		private void refresh(boolean generate) {
 			HighscoreMode mode = getSelectedMode();
-			if (mode == HighscoreMode.CHAMPIONSHIP) {
+			if (generate && mode == HighscoreMode.CHAMPIONSHIP) {
 				String selected = (String) m_champChooser.getSelectedItem();
 				updateChampionships();
 				m_champChooser.setSelectedItem(selected);
 			}
-			m_highscoreList.generateHighscores(mode, (String) m_champChooser.getSelectedItem(),
-					(Level) m_levelChooser.getSelectedItem(), (Engine) m_engineChooser.getSelectedItem());
-			updateHighscoreSelection();
+			String champName = (String) m_champChooser.getSelectedItem();
+			Level level = (Level) m_levelChooser.getSelectedItem();
+			Engine engine = (Engine) m_engineChooser.getSelectedItem();
+			GameCharacter character = getSelectedCharacter();
+			int round = getSelectedRound();
+			Player[] players = getSelectedPlayers();
+			Version version = getSelectedVersion();
+			int rankLimit = getSelectedRankLimit();
+			HighscoreQuery query = new HighscoreQuery(mode, champName, level, engine, character, round, players, version, rankLimit);
+			
+			long generation = m_refreshGeneration.incrementAndGet();
+			if (m_refreshJob != null) {
+				m_refreshJob.cancel(true);
+			}
+			if (generate) {
+				m_progressBar.setVisible(true);
+			}
+			m_refreshJob = m_refreshService.submit(() -> {
+				try {
+					if (isSuperseded(generation)) {
+						return;
+					}
+					HighscoreResult result = m_highscoreList.execute(query);
+					m_result = result;
+					Highscore[] highscores = result.getHighscores();
+					String[] columnNames = result.getColumnNames();
+					int[] maxColWidths = result.getMaximumColumnWidths();
+					SwingUtilities.invokeLater(() -> {
+						if (!isSuperseded(generation)) {
+							m_progressBar.setVisible(false);
+							// the settings are only written after the query, so it never waits for them
+							m_settings.setQuery(query);
+							m_shownResult = result;
+							setHighscores(highscores);
+							updateColumns(columnNames, maxColWidths);
+							fireTableDataChanged();
+						}
+					});
+				} catch (Exception ex) {
+					if (!isSuperseded(generation)) {
+						MainFrame.LOG_PANEL.error(ex.getMessage(), ex);
+						SwingUtilities.invokeLater(() -> {
+							if (!isSuperseded(generation)) {
+								m_progressBar.setVisible(false);
+							}
+						});
+					}
+				}
+			});
+		}
+		
+		private boolean isSuperseded(long generation) {
+			return generation != m_refreshGeneration.get();
+		}
+		
+		private void addSavedItem(SettingsItem savedItem) {
+			// the following refreshes must not show a cached result without the saved item
+			m_highscoreList.invalidate(savedItem);
+			long generation = m_refreshGeneration.get();
+			m_refreshService.execute(() -> {
+				if (isSuperseded(generation) || m_result == null) {
+					return;
+				}
+				try {
+					HighscoreResult previousResult = m_result;
+					HighscoreResult result = m_highscoreList.addSavedItem(previousResult, savedItem);
+					int[] insertedIndices;
+					if (result != null) {
+						insertedIndices = result.getInsertedIndices();
+					} else {
+						// the shown result was cached, so the saved files are read again
+						result = m_highscoreList.execute(previousResult.getQuery());
+						insertedIndices = null;
+					}
+					m_result = result;
+					HighscoreResult newResult = result;
+					Highscore[] highscores = result.getHighscores();
+					SwingUtilities.invokeLater(() -> {
+						if (!isSuperseded(generation)) {
+							publishSavedItem(previousResult, newResult, insertedIndices, highscores);
+						}
+					});
+				} catch (Exception ex) {
+					MainFrame.LOG_PANEL.error(ex.getMessage(), ex);
+				}
+			});
+		}
+		
+		/**
+		 * Shows the result with a newly saved item. If the table showed the previous
+		 * result, the rows cut off by the rank limit are deleted and the inserted
+		 * rows are announced in ascending order, otherwise all rows changed.
+		 * 
+		 * @param insertedIndices the ascending indices of the inserted rows or {@code null} if all rows changed
+		 */
+		private void publishSavedItem(HighscoreResult previousResult, HighscoreResult result, int[] insertedIndices,
+				Highscore[] highscores) {
+			boolean isShownResult = m_shownResult == previousResult;
+			int oldRowCount = m_highscores.length;
+			m_shownResult = result;
+			setHighscores(highscores);
+			if (!isShownResult || insertedIndices == null) {
+				fireTableDataChanged();
+				return;
+			}
+			
+			int keptRowCount = highscores.length - insertedIndices.length;
+			if (keptRowCount < oldRowCount) {
+				fireTableRowsDeleted(keptRowCount, oldRowCount - 1);
+			}
+			for (int index : insertedIndices) {
+				fireTableRowsInserted(index, index);
+			}
+		}
+		
+		/**
+		 * Sets the shown highscores and clears the cached rows, since the ranks change as well.
+		 */
+		private void setHighscores(Highscore[] highscores) {
+			m_highscores = highscores;
+			m_rows = new String[highscores.length][];
 		}
 		
 		@Override
 		public Object getValueAt(int row, int col) {
-			String[] properties = m_highscores[row].getProperties();
-			properties[0] = "" + (row+1);
+			if (m_rowsLocale != I18NLocale.getLocale()) {
+				m_rows = new String[m_highscores.length][];
+				m_rowsLocale = I18NLocale.getLocale();
+			}
+			String[] properties = m_rows[row];
+			if (properties == null) {
+				properties = m_highscores[row].getProperties();
+				properties[0] = "" + (row+1);
+				m_rows[row] = properties;
+			}
 			return properties[col];
 		}
 		
 		@Override
 		public Class<?> getColumnClass(int col) {
-			return getValueAt(0, col).getClass();
+			// all properties of a highscore are strings
+			return String.class;
 		}
 		
-		public Highscore[] getHighscores() {
-			return Arrays.copyOf(m_highscores, m_highscores.length);
+		public Highscore getHighscore(int row) {
+			return m_highscores[row];
 		}
 	}
 	
 	public void updateTableData() {
 		if (m_table != null) {
-			((HighscoreModel) m_table.getModel()).updateTable();
+			((HighscoreModel) m_table.getModel()).refresh(true);
 		}
 	}
 	
+	/**
+	 * Inserts the highscores of a newly saved item into the table
+	 * instead of generating the whole table again.
+	 * 
+	 * @param savedItem the saved phantom, championship or duel
+	 */
+	public void addSavedItem(SettingsItem savedItem) {
+		SwingUtilities.invokeLater(() -> {
+			if (m_table != null) {
+				((HighscoreModel) m_table.getModel()).addSavedItem(savedItem);
+				if (savedItem instanceof Championship) {
+					addChampionship((Championship) savedItem);
+				}
+			}
+		});
+	}
+	
 	private void updateHighscoreSelection() {
 		if (m_table != null) {
-			((HighscoreModel) m_table.getModel()).updateHighscoreSelection();
+			((HighscoreModel) m_table.getModel()).refresh(false);
 		}
 	}
 }
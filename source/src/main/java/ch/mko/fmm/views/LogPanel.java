@@ -7,21 +7,28 @@ import java.awt.GridBagLayout;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
+import javax.swing.text.Element;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyleContext;
@@ -32,12 +39,57 @@ public class LogPanel extends JPanel {
 	private static final long serialVersionUID = 8275955556404502673L;
 	
 	private static enum LogMode {
-		LOG, WARN, ERROR;
+		LOG(Color.BLACK), WARN(Color.MAGENTA), ERROR(Color.RED);
+		
+		private final AttributeSet m_attributes;
+		
+		private LogMode(Color color) {
+			StyleContext sc = StyleContext.getDefaultStyleContext();
+			AttributeSet aset = sc.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, color);
+			aset = sc.addAttribute(aset, StyleConstants.FontFamily, "Lucida Console");
+			m_attributes = sc.addAttribute(aset, StyleConstants.Alignment, StyleConstants.ALIGN_JUSTIFIED);
+		}
+	}
+	
+	private static class LogEntry {
+		
+		private final LogMode m_mode;
+		
+		private final String m_logText;
+		
+		private LogEntry(LogMode mode, String logText) {
+			m_mode = mode;
+			m_logText = logText;
+		}
 	}
 	
+	/**
+	 * The maximum number of lines shown in the log, older lines are removed.
+	 * The log file still contains all lines.
+	 */
+	private static final int MAX_LINES = 1000;
+	
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+	
 	private final JTextPane m_logTextPane = new JTextPane();
 	
 	private final String m_logFilePath;
+	
+	private final Queue<LogEntry> m_fileEntries = new ConcurrentLinkedQueue<>();
+	
+	private final Queue<LogEntry> m_paneEntries = new ConcurrentLinkedQueue<>();
+	
+	private final AtomicBoolean m_fileWriteScheduled = new AtomicBoolean();
+	
+	private final AtomicBoolean m_paneUpdateScheduled = new AtomicBoolean();
+	
+	private final ExecutorService m_fileWriter = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "log-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private Writer m_logFileWriter;
 
 	public LogPanel(String logFilePath, int width, int height) {
 		super(new GridBagLayout());
@@ -60,40 +112,69 @@ public class LogPanel extends JPanel {
 		caret.setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
 		m_logTextPane.setEditable(false);
 		clearLogFile();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::writeLogFile, "log-flush"));
 	}
 	
-	private synchronized void appendToTextPane(String text, Color color) {
-        StyleContext sc = StyleContext.getDefaultStyleContext();
-        AttributeSet aset = sc.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.Foreground, color);
-        aset = sc.addAttribute(aset, StyleConstants.FontFamily, "Lucida Console");
-        aset = sc.addAttribute(aset, StyleConstants.Alignment, StyleConstants.ALIGN_JUSTIFIED);
-        try {
-            StyledDocument doc = m_logTextPane.getStyledDocument();
-			doc.insertString(doc.getLength(), text, aset);
+	/**
+	 * Appends all queued entries to the text pane and removes the oldest lines
+	 * beyond {@link #MAX_LINES}. Must be called on the EDT.
+	 */
+	private void appendToTextPane() {
+		m_paneUpdateScheduled.set(false);
+		StyledDocument doc = m_logTextPane.getStyledDocument();
+		try {
+			LogEntry entry;
+			while ((entry = m_paneEntries.poll()) != null) {
+				doc.insertString(doc.getLength(), entry.m_logText, entry.m_mode.m_attributes);
+			}
+			
+			Element root = doc.getDefaultRootElement();
+			int removedLines = root.getElementCount() - MAX_LINES;
+			if (removedLines > 0) {
+				doc.remove(0, root.getElement(removedLines - 1).getEndOffset());
+			}
 		} catch (BadLocationException e) {
 			e.printStackTrace();
 		}
-    }
+	}
+	
+	/**
+	 * Writes all queued entries to the log file and flushes it once.
+	 */
+	private synchronized void writeLogFile() {
+		m_fileWriteScheduled.set(false);
+		try {
+			if (m_logFileWriter == null) {
+				m_logFileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(m_logFilePath, true)));
+			}
+			LogEntry entry;
+			while ((entry = m_fileEntries.poll()) != null) {
+				m_logFileWriter.write(entry.m_logText);
+			}
+			m_logFileWriter.flush();
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+		}
+	}
 	
 	private void addEntry(LogMode mode, String text, Throwable cause) {
-		String dateString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(System.currentTimeMillis()));
-		String logText = String.format("%-5s %s - %s", mode.toString(), dateString, text);
+		String dateString = DATE_FORMATTER.format(LocalDateTime.now());
+		StringBuilder logText = new StringBuilder(String.format("%-5s %s - %s", mode.toString(), dateString, text));
 		if (cause != null) {
 			StringWriter exceptionWriter = new StringWriter();
 			cause.printStackTrace(new PrintWriter(exceptionWriter));
-			logText += System.getProperty("line.separator") + exceptionWriter.toString();
+			logText.append(System.lineSeparator()).append(exceptionWriter.toString());
 		}
-		logText += System.getProperty("line.separator");
-
-		appendToTextPane(logText, mode == LogMode.ERROR ? Color.RED : mode == LogMode.WARN ? Color.MAGENTA : Color.BLACK);
+		logText.append(System.lineSeparator());
 		
-		try {
-			File log = new File(m_logFilePath);
-			FileWriter out = new FileWriter(log, true);
-			out.write(logText);
-			out.close();
-		} catch (IOException ioe) {
-			ioe.printStackTrace();
+		LogEntry entry = new LogEntry(mode, logText.toString());
+		m_paneEntries.add(entry);
+		if (m_paneUpdateScheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(this::appendToTextPane);
+		}
+		m_fileEntries.add(entry);
+		if (m_fileWriteScheduled.compareAndSet(false, true)) {
+			m_fileWriter.execute(this::writeLogFile);
 		}
 	}
 